@@ -0,0 +1,390 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import control_strategies.CancellationToken;
+import control_strategies.SearchBudget;
+import control_strategies.SearchResult;
+import control_strategies.SolutionCache;
+import control_strategies.Solver;
+import database.DistanceTable;
+import heuristics.PatternDatabase;
+import io.Input;
+import io.Output;
+
+public class BatchSolver {
+	/**
+	 * Solves a stream of puzzles in one JVM. Puzzles are read one per line (see Input.parse)
+	 * from a file or standard input, solved on a pool of worker threads, and written one
+	 * result per line (see Output.formatResult) to standard output.
+	 * 
+	 * Results are written in input order by default, or as soon as they finish with
+	 * --unordered. Either way, at most --in-flight puzzles are read ahead of the output,
+	 * so memory use stays bounded no matter how long the input is. Finished results are
+	 * written as soon as their turn comes, also while waiting for more input, and the output
+	 * is flushed whenever the solver has to wait, so a consumer at the other end of a pipe
+	 * sees every result that's ready.
+	 * 
+	 * With --cache, puzzles that were already solved (including by earlier runs that saved
+	 * the same --cache-file) are answered from a SolutionCache without a search.
+	 * 
+	 * Every puzzle can be held to a service level with --timeout, --max-nodes and --max-memory
+	 * (see SearchBudget). The timeout counts from when the puzzle is read, so time spent
+	 * waiting for a worker counts against it. A puzzle that goes over its budget is reported
+	 * with its outcome and the partial path found so far (see Output.formatResult) and
+	 * doesn't hold up the others. Searches still running when the batch ends are cancelled.
+	 */
+	
+	private static final long POLL_MILLIS = 10;	// how long to wait for a result before checking for input again
+	
+	private final int threads;		// worker threads solving puzzles
+	private final int inFlight;		// puzzles read but not yet written
+	private final boolean ordered;	// write results in input order
+	private final SolutionCache cache;	// solutions of earlier puzzles (null for none)
+	private final long timeoutMillis;	// how long each puzzle may take (0 for no limit)
+	private final long maxNodes;		// the most nodes each search may expand (0 for no limit)
+	private final long maxBytes;		// the most bytes each search may allocate (0 for no limit)
+	
+	public BatchSolver(int threads, int inFlight, boolean ordered) {
+		/**
+		 * @param threads   the number of worker threads solving puzzles
+		 * @param inFlight  the most puzzles read but not yet written at any time
+		 * @param ordered   whether results are written in input order rather than completion order
+		 */
+		this(threads, inFlight, ordered, null);
+	}
+	
+	public BatchSolver(int threads, int inFlight, boolean ordered, SolutionCache cache) {
+		/**
+		 * @param threads   the number of worker threads solving puzzles
+		 * @param inFlight  the most puzzles read but not yet written at any time
+		 * @param ordered   whether results are written in input order rather than completion order
+		 * @param cache     where solutions are looked up and remembered (null for none)
+		 */
+		this(threads, inFlight, ordered, cache, 0, 0, 0);
+	}
+	
+	public BatchSolver(int threads, int inFlight, boolean ordered, SolutionCache cache,
+			long timeoutMillis, long maxNodes, long maxBytes) {
+		/**
+		 * @param threads        the number of worker threads solving puzzles
+		 * @param inFlight       the most puzzles read but not yet written at any time
+		 * @param ordered        whether results are written in input order rather than completion order
+		 * @param cache          where solutions are looked up and remembered (null for none)
+		 * @param timeoutMillis  how long each puzzle may take from when it's read (0 for no limit)
+		 * @param maxNodes       the most nodes each search may expand (0 for no limit)
+		 * @param maxBytes       the most bytes each search may allocate (0 for no limit)
+		 */
+		if (threads < 1 || inFlight < 1) {
+			throw new IllegalArgumentException("threads and in-flight must be positive");
+		}
+		if (timeoutMillis < 0 || maxNodes < 0 || maxBytes < 0) {
+			throw new IllegalArgumentException("timeout, max-nodes and max-memory can't be negative");
+		}
+		this.threads = threads;
+		this.inFlight = inFlight;
+		this.ordered = ordered;
+		this.cache = cache;
+		this.timeoutMillis = timeoutMillis;
+		this.maxNodes = maxNodes;
+		this.maxBytes = maxBytes;
+	}
+	
+	public static void main(String[] args) throws IOException {
+		/**
+		 * Usage: BatchSolver [FILE | -] [--threads N] [--in-flight M] [--unordered]
+		 *                    [--cache SIZE] [--cache-file CACHE]
+		 *                    [--timeout MS] [--max-nodes NODES] [--max-memory BYTES]
+		 *                    [--pdb-dir DIR] [--tables TABLES]
+		 * 
+		 * Reads from standard input when FILE is missing or "-". N defaults to the number of
+		 * processors and M to 64 puzzles per thread. Solutions are only cached with --cache,
+		 * and CACHE, which needs --cache, is loaded before the run and saved after it. Puzzles have no time, node
+		 * or memory limit unless one is given. Pattern database tables are mapped from DIR,
+		 * or built and written there if missing, instead of being built in memory by every run.
+		 * The distance tables of the table lookup strategy are kept in TABLES the same way.
+		 * 
+		 * @param args  the command-line arguments to the program.
+		 */
+		String file = "-";
+		int threads = Runtime.getRuntime().availableProcessors();
+		int inFlight = -1;
+		boolean ordered = true;
+		int cacheSize = 0;
+		File cacheFile = null;
+		long timeoutMillis = 0;
+		long maxNodes = 0;
+		long maxBytes = 0;
+		
+		for (int i=0; i<args.length; i++) {
+			switch (args[i]) {
+				case "--threads":	threads = Integer.parseInt(args[++i]); break;
+				case "--in-flight":	inFlight = Integer.parseInt(args[++i]); break;
+				case "--unordered":	ordered = false; break;
+				case "--cache":		cacheSize = Integer.parseInt(args[++i]); break;
+				case "--cache-file":	cacheFile = new File(args[++i]); break;
+				case "--timeout":		timeoutMillis = Long.parseLong(args[++i]); break;
+				case "--max-nodes":		maxNodes = Long.parseLong(args[++i]); break;
+				case "--max-memory":	maxBytes = Long.parseLong(args[++i]); break;
+				case "--pdb-dir":		PatternDatabase.setDefaultDirectory(new File(args[++i])); break;
+				case "--tables":		DistanceTable.setDefaultDirectory(new File(args[++i])); break;
+				default:			file = args[i];
+			}
+		}
+		if (inFlight < 0) {
+			inFlight = 64 * threads;
+		}
+		if (cacheFile != null && cacheSize <= 0) {
+			throw new IllegalArgumentException("--cache-file needs a cache size (--cache SIZE)");
+		}
+		
+		SolutionCache cache = cacheSize > 0 ? new SolutionCache(cacheSize, cacheFile) : null;
+		
+		InputStream in = file.equals("-") ? System.in : new FileInputStream(file);
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+				Writer writer = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16)) {
+			new BatchSolver(threads, inFlight, ordered, cache, timeoutMillis, maxNodes, maxBytes).run(reader, writer);
+		}
+		if (cache != null) {
+			cache.save();
+		}
+	}
+	
+	public void run(BufferedReader reader, Writer writer) throws IOException {
+		/**
+		 * Solves every puzzle the reader holds and writes the results. Blank lines and lines
+		 * starting with '#' are skipped but still counted, so result indexes are line numbers
+		 * starting at 0.
+		 * 
+		 * @param reader  the puzzles, one per line
+		 * @param writer  where the results are written, one per line
+		 */
+		ExecutorService executor = Executors.newFixedThreadPool(this.threads);
+		CancellationToken token = new CancellationToken();
+		try {
+			if (this.ordered) {
+				this.runOrdered(reader, writer, executor, token);
+			}
+			else {
+				this.runUnordered(reader, writer, executor, token);
+			}
+		}
+		finally {
+			// only searches whose results can no longer be written are still running here
+			token.cancel();
+			executor.shutdownNow();
+		}
+		writer.flush();
+	}
+	
+	private void runOrdered(BufferedReader reader, Writer writer, ExecutorService executor, CancellationToken token) throws IOException {
+		/**
+		 * Keeps a window of pending results in input order. Once the window is full, the
+		 * oldest result is waited for and written before another puzzle is read. Results
+		 * at the front of the window that are already done are written right away.
+		 */
+		ArrayDeque<Future<String>> pending = new ArrayDeque<>(this.inFlight);
+		String line;
+		for (long index=0; (line = BatchSolver.readLine(reader, writer)) != null; index++) {
+			if (BatchSolver.isSkipped(line)) {
+				continue;
+			}
+			if (pending.size() == this.inFlight) {
+				BatchSolver.write(writer, pending.poll());
+			}
+			pending.add(executor.submit(this.task(index, line, token)));
+			while (!pending.isEmpty() && pending.peek().isDone()) {
+				BatchSolver.write(writer, pending.poll());
+			}
+			// while no input is waiting, keep writing results as they finish
+			while (!reader.ready() && !pending.isEmpty()) {
+				writer.flush();
+				if (BatchSolver.await(pending.peek())) {
+					BatchSolver.write(writer, pending.poll());
+				}
+			}
+		}
+		while (!pending.isEmpty()) {
+			BatchSolver.write(writer, pending.poll());
+		}
+	}
+	
+	private void runUnordered(BufferedReader reader, Writer writer, ExecutorService executor, CancellationToken token) throws IOException {
+		/**
+		 * Writes results as they finish. Once the limit of pending puzzles is reached, the
+		 * next result to finish is written before another puzzle is read.
+		 */
+		CompletionService<String> completed = new ExecutorCompletionService<>(executor);
+		int pending = 0;
+		String line;
+		for (long index=0; (line = BatchSolver.readLine(reader, writer)) != null; index++) {
+			if (BatchSolver.isSkipped(line)) {
+				continue;
+			}
+			if (pending == this.inFlight) {
+				BatchSolver.write(writer, BatchSolver.take(completed, writer));
+				pending--;
+			}
+			completed.submit(this.task(index, line, token));
+			pending++;
+			for (Future<String> done; (done = completed.poll()) != null; pending--) {
+				BatchSolver.write(writer, done);
+			}
+			// while no input is waiting, keep writing results as they finish
+			while (!reader.ready() && pending > 0) {
+				writer.flush();
+				Future<String> done = BatchSolver.poll(completed);
+				if (done != null) {
+					BatchSolver.write(writer, done);
+					pending--;
+				}
+			}
+		}
+		for (; pending > 0; pending--) {
+			BatchSolver.write(writer, BatchSolver.take(completed, writer));
+		}
+	}
+	
+	private static String readLine(BufferedReader reader, Writer writer) throws IOException {
+		/**
+		 * Reads the next puzzle, flushing the results written so far first if it has to wait for it.
+		 */
+		if (!reader.ready()) {
+			writer.flush();
+		}
+		return reader.readLine();
+	}
+	
+	public static boolean isSkipped(String line) {
+		/**
+		 * @return whether the line holds no puzzle (blank or a '#' comment).
+		 */
+		String trimmed = line.trim();
+		return trimmed.isEmpty() || trimmed.startsWith("#");
+	}
+	
+	private Callable<String> task(final long index, final String line, CancellationToken token) {
+		/**
+		 * @param index  the line number of the puzzle
+		 * @param line   the puzzle as text
+		 * @param token  stops the search when the batch ends
+		 * @return a task that solves the puzzle within its budget and formats its result.
+		 */
+		final SearchBudget budget = new SearchBudget(this.timeoutMillis, this.maxNodes, this.maxBytes, token);
+		return new Callable<String>() {
+			@Override
+			public String call() {
+				Input input;
+				try {
+					input = Input.parse(line);
+				}
+				catch (IllegalArgumentException e) {
+					return Output.formatError(index, e.getMessage());
+				}
+				
+				Solver solver = new Solver(input.getControlStrategy(), goal -> input.getHeuristic(), BatchSolver.this.cache);
+				SearchResult result;
+				try {
+					result = solver.solve(input.getInitial(), input.getGoal(), budget);
+				}
+				catch (RuntimeException e) {
+					// e.g. a strategy that can't solve puzzles of this size; the rest of the batch goes on
+					return Output.formatError(index, String.valueOf(e.getMessage()));
+				}
+				return Output.formatResult(index, result);
+			}
+		};
+	}
+	
+	private static boolean await(Future<String> result) throws IOException {
+		/**
+		 * @return whether the result finished within POLL_MILLIS.
+		 */
+		try {
+			result.get(POLL_MILLIS, TimeUnit.MILLISECONDS);
+			return true;
+		}
+		catch (TimeoutException e) {
+			return false;
+		}
+		catch (ExecutionException e) {
+			return true;
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for a result", e);
+		}
+	}
+	
+	private static Future<String> poll(CompletionService<String> completed) throws IOException {
+		/**
+		 * @return the next result to finish within POLL_MILLIS, or null if none did.
+		 */
+		try {
+			return completed.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for a result", e);
+		}
+	}
+	
+	private static Future<String> take(CompletionService<String> completed, Writer writer) throws IOException {
+		/**
+		 * Waits for the next result to finish, flushing the results written so far first if
+		 * none has finished yet.
+		 * 
+		 * @return the next result to finish.
+		 */
+		Future<String> done = completed.poll();
+		if (done != null) {
+			return done;
+		}
+		writer.flush();
+		try {
+			return completed.take();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for a result", e);
+		}
+	}
+	
+	private static void write(Writer writer, Future<String> result) throws IOException {
+		/**
+		 * Waits for a result and writes it on its own line. The results written so far are
+		 * flushed first if it isn't done yet.
+		 */
+		if (!result.isDone()) {
+			writer.flush();
+		}
+		try {
+			writer.write(result.get());
+			writer.write('\n');
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for a result", e);
+		}
+		catch (ExecutionException e) {
+			throw new IOException("A puzzle could not be solved", e.getCause());
+		}
+	}
+}
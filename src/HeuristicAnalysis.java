@@ -1,68 +1,315 @@
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.DoubleAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
 
 import control_strategies.AStar;
+import control_strategies.AnytimeAStar;
+import control_strategies.BidirectionalSearch;
 import control_strategies.ControlStrategy;
-import database.Path;
+import control_strategies.IDAStar;
+import control_strategies.ParallelAStar;
+import control_strategies.SearchBudget;
+import control_strategies.SearchContext;
+import control_strategies.SearchResult;
+import control_strategies.TableLookup;
+import control_strategies.WeightedAStar;
+import database.DistanceTable;
 import database.State;
 import heuristics.CompositeHeuristic;
 import heuristics.Heuristic;
+import heuristics.LinearConflict;
 import heuristics.ManhattanDistance;
 import heuristics.MisplacedTiles;
 import heuristics.NoHeuristic;
+import heuristics.PatternDatabase;
+import heuristics.WalkingDistance;
 
 public class HeuristicAnalysis {
-	public static void main(String[] args) {
+	/**
+	 * Generates a performance report for all heuristics and control strategies by solving
+	 * a set of randomly-generated puzzles with every combination of them.
+	 * 
+	 * Puzzles are grouped into difficulty levels: a puzzle of level n is a random goal
+	 * shuffled n times. Every puzzle comes from its own Random, seeded from the run's seed,
+	 * its level and its number, so a run gives the same puzzles no matter how many threads
+	 * solve them or in which order. The puzzles are solved in parallel on a fork-join pool.
+	 * 
+	 * For every control strategy, the report has one row per level in the format of
+	 * analysis/performance.csv: the average number of nodes explored with each heuristic,
+	 * followed by the average time in milliseconds of a solve with each heuristic. Only
+	 * the sums per level are kept, so memory use doesn't grow with the number of samples.
+	 * 
+	 * Every optimal strategy (see ControlStrategy.isOptimal) must find solutions of the same
+	 * length for a puzzle with every heuristic. The others, like WeightedAStar, may find
+	 * longer ones, but never longer than the bound they report (see SearchResult.getBound);
+	 * their rows also have the average number of moves their solutions are longer than the
+	 * shortest one with each heuristic. Puzzles where a solution has the wrong length are
+	 * counted, and the report ends with the count and the first such puzzle, followed by the
+	 * largest ratio of solution length to shortest length and the largest bound of every
+	 * strategy that isn't optimal.
+	 * 
+	 * Usage: HeuristicAnalysis [--samples N] [--levels L] [--seed S] [--threads T] [--out FILE]
+	 *                         [--pdb-dir DIR] [--tables DIR]
+	 */
+	
+	private final ArrayList<ControlStrategy> strategies = new ArrayList<>();
+	private final ArrayList<Function<State, Heuristic>> heuristics = new ArrayList<>();
+	private final ArrayList<String> names = new ArrayList<>();	// column name of each heuristic
+	
+	private final int levels;		// levels 1 through this many
+	private final int samples;		// puzzles per level
+	private final long seed;		// the seed every puzzle's Random is derived from
+	
+	// Sums over the samples of each level, indexed by [strategy][heuristic][level - 1].
+	private final LongAdder[][][] explored;
+	private final LongAdder[][][] nanos;
+	private final LongAdder[][][] excess;	// moves more than the shortest solution, for strategies that aren't optimal
+	
+	// The largest solution length / shortest length and the largest bound of each strategy.
+	private final DoubleAccumulator[] ratios;
+	private final DoubleAccumulator[] bounds;
+	
+	private final LongAdder mismatches = new LongAdder();						// puzzles solved with the wrong length
+	private final AtomicReference<String> firstMismatch = new AtomicReference<>();	// a description of the first one
+	
+	public HeuristicAnalysis(int levels, int samples, long seed) {
+		/**
+		 * @param levels   the number of difficulty levels (1 through levels shuffles)
+		 * @param samples  the number of puzzles per level
+		 * @param seed     the seed every puzzle is derived from
+		 */
+		this.levels = levels;
+		this.samples = samples;
+		this.seed = seed;
+		
+		this.strategies.add(new AStar());
+		this.strategies.add(new IDAStar());
+		this.strategies.add(new BidirectionalSearch());
+		this.strategies.add(new TableLookup(DistanceTable.getDefaultDirectory()));
+		this.strategies.add(new ParallelAStar());
+		this.strategies.add(new WeightedAStar());
+		this.strategies.add(new AnytimeAStar());
+		
+		this.addHeuristic("None", NoHeuristic::new);
+		this.addHeuristic("Misplaced", MisplacedTiles::new);
+		this.addHeuristic("Manhattan", ManhattanDistance::new);
+		this.addHeuristic("Composite", CompositeHeuristic::new);
+		this.addHeuristic("Conflict", LinearConflict::new);
+		this.addHeuristic("Walking", WalkingDistance::new);
+		this.addHeuristic("PatternDB", PatternDatabase::new);
+		this.addHeuristic("Max", goal -> new CompositeHeuristic(goal, true, 1 << 16));
+		
+		this.explored = HeuristicAnalysis.sums(this.strategies.size(), this.heuristics.size(), levels);
+		this.nanos = HeuristicAnalysis.sums(this.strategies.size(), this.heuristics.size(), levels);
+		this.excess = HeuristicAnalysis.sums(this.strategies.size(), this.heuristics.size(), levels);
+		this.ratios = new DoubleAccumulator[this.strategies.size()];
+		this.bounds = new DoubleAccumulator[this.strategies.size()];
+		for (int c=0; c<this.strategies.size(); c++) {
+			this.ratios[c] = new DoubleAccumulator(Math::max, 1);
+			this.bounds[c] = new DoubleAccumulator(Math::max, 1);
+		}
+	}
+	
+	private static LongAdder[][][] sums(int strategies, int heuristics, int levels) {
+		LongAdder[][][] sums = new LongAdder[strategies][heuristics][levels];
+		for (LongAdder[][] s : sums) {
+			for (LongAdder[] h : s) {
+				for (int level=0; level<levels; level++) {
+					h[level] = new LongAdder();
+				}
+			}
+		}
+		return sums;
+	}
+	
+	public static void main(String[] args) throws FileNotFoundException {
 		/**
-		 * Generates a performance report for all heuristics by solving a set of
-		 * randomly-generated puzzles and solving them using each of the heuristics
-		 * and control strategies.
-		 * 
 		 * @param args  the command-line arguments to the program.
 		 */
+		int samples = 10;
+		int levels = 19;
+		long seed = 0;
+		int threads = Runtime.getRuntime().availableProcessors();
+		String out = null;
+		
+		for (int i=0; i<args.length; i++) {
+			switch (args[i]) {
+				case "--samples":	samples = Integer.parseInt(args[++i]); break;
+				case "--levels":	levels = Integer.parseInt(args[++i]); break;
+				case "--seed":		seed = Long.parseLong(args[++i]); break;
+				case "--threads":	threads = Integer.parseInt(args[++i]); break;
+				case "--out":		out = args[++i]; break;
+				case "--pdb-dir":	PatternDatabase.setDefaultDirectory(new File(args[++i])); break;
+				case "--tables":	DistanceTable.setDefaultDirectory(new File(args[++i])); break;
+				default:			throw new IllegalArgumentException("Unknown option " + args[i]);
+			}
+		}
 		
-		ControlStrategy cs = new AStar();
+		HeuristicAnalysis analysis = new HeuristicAnalysis(levels, samples, seed);
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			pool.invoke(analysis.new Samples(0, levels * samples));
+		}
+		finally {
+			pool.shutdown();
+		}
 		
-		System.out.println("===== " + cs.getName() + " =====");
-		System.out.println("   #   Misplaced   Manhattan");
-		System.out.println("----  ----------  ----------");
+		PrintStream report = out == null ? System.out : new PrintStream(out);
+		analysis.print(report);
+		report.flush();
+		if (report != System.out) {
+			report.close();
+		}
+	}
+	
+	private void addHeuristic(String name, Function<State, Heuristic> heuristic) {
+		this.names.add(name);
+		this.heuristics.add(heuristic);
+	}
+	
+	private class Samples extends RecursiveAction {
+		/**
+		 * Solves a range of samples, numbered level by level, splitting it in half until
+		 * each task solves a single puzzle with every strategy and heuristic.
+		 */
+		private static final long serialVersionUID = 1L;
 		
+		private final int from;	// the first sample in the range
+		private final int to;	// one past the last sample in the range
 		
-		int numSamples = 10;
-		for (int numMoves=1; numMoves<20; numMoves++) {
-			
-			int[] cumulativeDBSizes = {0,0};
-			
-			for (int i=0; i<numSamples; i++) {
-				State goal = State.generateRandom();
-				State initial = goal.shuffle(numMoves);
-				
-				ArrayList<Path> solutions = new ArrayList<>();
-				ArrayList<Heuristic> heuristics = new ArrayList<>();
-				//heuristics.add(new NoHeuristic(goal));
-				heuristics.add(new MisplacedTiles(goal));
-				heuristics.add(new ManhattanDistance(goal));
-				//heuristics.add(new CompositeHeuristic(goal));
-				
-				
-				for (int j=0; j<heuristics.size(); j++) {
-					State.database.clear();
-					Path solution = cs.exec(initial, goal, heuristics.get(j));
-					cumulativeDBSizes[j] += State.database.size();
-					solutions.add(solution);
+		public Samples(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+		
+		@Override
+		protected void compute() {
+			if (this.to - this.from > 1) {
+				int middle = (this.from + this.to) >>> 1;
+				RecursiveAction.invokeAll(new Samples(this.from, middle), new Samples(middle, this.to));
+			}
+			else if (this.to > this.from) {
+				HeuristicAnalysis.this.solve(this.from / HeuristicAnalysis.this.samples, this.from % HeuristicAnalysis.this.samples);
+			}
+		}
+	}
+	
+	private void solve(int level, int sample) {
+		/**
+		 * Generates one puzzle of the level and solves it with every strategy and heuristic.
+		 * 
+		 * @param level   the difficulty level, starting at 0 for one shuffle
+		 * @param sample  the number of the puzzle within its level
+		 */
+		Random random = new Random((this.seed * 31 + level) * 1000003 + sample);
+		State goal = State.generateRandom(random);
+		State initial = goal.shuffle(level + 1, random);
+		
+		SearchResult[][] results = new SearchResult[this.strategies.size()][this.heuristics.size()];
+		for (int c=0; c<this.strategies.size(); c++) {
+			for (int h=0; h<this.heuristics.size(); h++) {
+				SearchResult result = this.strategies.get(c).exec(initial, goal, this.heuristics.get(h).apply(goal),
+						new SearchContext(SearchBudget.UNLIMITED, true));
+				this.explored[c][h][level].add(result.getNodesExplored());
+				this.nanos[c][h][level].add(result.getWallNanos());
+				results[c][h] = result;
+			}
+		}
+		
+		// make sure all optimal solutions have the same length, and the others stay within their bounds.
+		int length = -1;
+		for (int c=0; c<this.strategies.size() && length < 0; c++) {
+			if (this.strategies.get(c).isOptimal())
+				length = results[c][0].getPath().length();
+		}
+		boolean mismatch = false;
+		for (int c=0; c<this.strategies.size(); c++) {
+			ControlStrategy strategy = this.strategies.get(c);
+			for (int h=0; h<this.heuristics.size(); h++) {
+				int found = results[c][h].getPath().length();
+				double bound = results[c][h].getBound();
+				if (!strategy.isOptimal()) {
+					this.excess[c][h][level].add(found - length);
+					this.ratios[c].accumulate(length == 0 ? 1 : found / (double)length);
+					this.bounds[c].accumulate(bound);
 				}
 				
-				// make sure all solutions are the same for each path.
-				for (int k=1; k<heuristics.size(); k++) {
-					assert(solutions.get(k).equals(solutions.get(k-1)));
+				boolean wrong = strategy.isOptimal() ? found != length : found < length || found > bound * length;
+				if (wrong && !mismatch) {
+					mismatch = true;
+					this.mismatches.increment();
+					this.firstMismatch.compareAndSet(null, String.format("%s -> %s: %d moves, but %d with %s and %s (bound %.3f)",
+							HeuristicAnalysis.flat(initial), HeuristicAnalysis.flat(goal), length, found, strategy.getName(), this.names.get(h), bound));
 				}
 			}
+		}
+	}
+	
+	private void print(PrintStream report) {
+		/**
+		 * Prints the averages of every level for each strategy.
+		 */
+		for (int c=0; c<this.strategies.size(); c++) {
+			boolean optimal = this.strategies.get(c).isOptimal();
+			report.println("===== " + this.strategies.get(c).getName() + " =====");
+			report.print("diff, ");
+			for (String name : this.names) {
+				report.print(String.format("%10s, ", name));
+			}
+			for (String name : this.names) {
+				report.print(String.format("%10s, ", name + " ms"));
+			}
+			for (int h=0; h<this.heuristics.size() && !optimal; h++) {
+				report.print(String.format("%10s, ", this.names.get(h) + " extra"));
+			}
+			report.println();
 			
-			System.out.print(String.format("%4d, ", numMoves));
-			//System.out.print("      ");
-			for (int i=0; i<cumulativeDBSizes.length; i++) {
-				System.out.print(String.format("%10.3f, ", cumulativeDBSizes[i]/(float)(numSamples)));
+			for (int level=0; level<this.levels; level++) {
+				report.print(String.format("%4d, ", level + 1));
+				for (int h=0; h<this.heuristics.size(); h++) {
+					report.print(String.format("%10.3f, ", this.mean(this.explored[c][h][level])));
+				}
+				for (int h=0; h<this.heuristics.size(); h++) {
+					report.print(String.format("%10.3f, ", this.mean(this.nanos[c][h][level]) / 1e6));
+				}
+				for (int h=0; h<this.heuristics.size() && !optimal; h++) {
+					report.print(String.format("%10.3f, ", this.mean(this.excess[c][h][level])));
+				}
+				report.println();
 			}
-			System.out.println();
 		}
+		
+		report.println("===== SOLUTION LENGTHS =====");
+		if (this.mismatches.sum() == 0) {
+			report.println("Every optimal strategy found solutions of the same length, and the others stayed within their bounds.");
+		}
+		else {
+			report.println(this.mismatches.sum() + " puzzles were solved with the wrong length, the first: " + this.firstMismatch.get());
+		}
+		for (int c=0; c<this.strategies.size(); c++) {
+			if (!this.strategies.get(c).isOptimal()) {
+				report.println(String.format("%s: at most %.3f times the shortest length, with a bound of at most %.3f",
+						this.strategies.get(c).getName(), this.ratios[c].get(), this.bounds[c].get()));
+			}
+		}
+	}
+	
+	private static String flat(State state) {
+		/**
+		 * @return the state in row-major order on one line, as batch mode reads it (see Input.parseState).
+		 */
+		return state.toString().replaceAll("\\s", "");
+	}
+	
+	private double mean(LongAdder sum) {
+		return sum.sum() / (double)this.samples;
 	}
 }
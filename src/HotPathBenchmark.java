@@ -0,0 +1,262 @@
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import control_strategies.AStar;
+import database.State;
+import heuristics.CompositeHeuristic;
+import heuristics.Heuristic;
+import heuristics.LinearConflict;
+import heuristics.ManhattanDistance;
+import heuristics.MisplacedTiles;
+import heuristics.NoHeuristic;
+import heuristics.PatternDatabase;
+import heuristics.WalkingDistance;
+import operators.Operator;
+
+public class HotPathBenchmark {
+	/**
+	 * Micro-benchmarks for the code every search spends its time in: generating states,
+	 * hashing and comparing them, evaluating heuristics, and whole A* solves.
+	 * 
+	 * Each benchmark is warmed up, then timed over several fixed-length iterations on one
+	 * thread. The report gives throughput (ops/s), average time (ns/op), and the bytes the
+	 * thread allocated per operation (B/op, where the JVM can measure it).
+	 * 
+	 * Every run uses the same puzzles: random walks from the goal drawn from a seeded
+	 * generator, solved once up front and grouped by the length of their optimal solution.
+	 * 
+	 * Usage: HotPathBenchmark [--warmup MS] [--iterations N] [--time MS] [--seed S] [--pdb-dir DIR] [FILTER]
+	 * 
+	 * Only benchmarks whose name contains FILTER are run. Pattern database tables are
+	 * mapped from DIR, or built and written there if missing.
+	 */
+	
+	private interface Workload {
+		/**
+		 * One benchmarked operation. The argument counts up from 0 (wrapping at Integer.MAX_VALUE)
+		 * so consecutive calls can use different inputs; the result is consumed so the JIT
+		 * can't remove the work.
+		 */
+		long run(int i);
+	}
+	
+	private static final Operator[] OPERATORS = Operator.values();
+	private static final int[][] DEPTHS = {{1, 8}, {9, 14}, {15, 20}, {21, 26}};	// solution lengths of each group
+	private static final int PER_DEPTH = 16;										// puzzles in each group
+	
+	private static volatile long sink;	// keeps the results of every workload alive
+	
+	private final long warmupNanos;		// time spent running a benchmark before measuring it
+	private final int iterations;		// measured iterations per benchmark
+	private final long iterationNanos;	// length of each measured iteration
+	private final String filter;		// only benchmarks whose name contains this are run
+	
+	public HotPathBenchmark(long warmupMillis, int iterations, long iterationMillis, String filter) {
+		/**
+		 * @param warmupMillis     time spent running a benchmark before measuring it
+		 * @param iterations       measured iterations per benchmark
+		 * @param iterationMillis  length of each measured iteration
+		 * @param filter           only benchmarks whose name contains this are run
+		 */
+		this.warmupNanos = warmupMillis * 1000000L;
+		this.iterations = iterations;
+		this.iterationNanos = iterationMillis * 1000000L;
+		this.filter = filter;
+	}
+	
+	public static void main(String[] args) {
+		/**
+		 * @param args  the command-line arguments to the program.
+		 */
+		long warmup = 1000;
+		int iterations = 5;
+		long time = 1000;
+		long seed = 8;
+		String filter = "";
+		
+		for (int i=0; i<args.length; i++) {
+			switch (args[i]) {
+				case "--warmup":		warmup = Long.parseLong(args[++i]); break;
+				case "--iterations":	iterations = Integer.parseInt(args[++i]); break;
+				case "--time":			time = Long.parseLong(args[++i]); break;
+				case "--seed":			seed = Long.parseLong(args[++i]); break;
+				case "--pdb-dir":		PatternDatabase.setDefaultDirectory(new File(args[++i])); break;
+				default:				filter = args[i];
+			}
+		}
+		
+		State goal = new State(new char[][] {{'1', '2', '3'}, {'4', '5', '6'}, {'7', '8', '-'}});
+		State[][] puzzles = HotPathBenchmark.generate(goal, new Random(seed));
+		new HotPathBenchmark(warmup, iterations, time, filter).runAll(goal, puzzles);
+	}
+	
+	public void runAll(final State goal, final State[][] puzzles) {
+		/**
+		 * Runs every benchmark that matches the filter and prints the report.
+		 * 
+		 * @param goal     the goal state of every puzzle
+		 * @param puzzles  the initial states, one group per entry of DEPTHS
+		 */
+		ArrayList<State> all = new ArrayList<>();
+		for (State[] group : puzzles) {
+			all.addAll(Arrays.asList(group));
+		}
+		final State[] states = all.toArray(new State[all.size()]);
+		final State[] copies = new State[states.length];
+		for (int i=0; i<states.length; i++) {
+			copies[i] = new State(states[i].getPacked(), states[i].getBlank());
+		}
+		final int n = states.length;
+		
+		System.out.println(String.format("%-40s %14s %12s %10s", "Benchmark", "ops/s", "ns/op", "B/op"));
+		
+		this.measure("State.transform", i -> {
+			State s = states[i % n].transform(OPERATORS[i & 3]);
+			return s == null ? 0 : s.getPacked();
+		});
+		this.measure("State.getNeighbors", i -> states[i % n].getNeighbors().size());
+		this.measure("State.hashCode", i -> states[i % n].hashCode());
+		this.measure("State.equals", i -> states[i % n].equals(copies[i % n]) ? 1 : 0);
+		
+		Heuristic[] heuristics = {
+				new NoHeuristic(goal),
+				new MisplacedTiles(goal),
+				new ManhattanDistance(goal),
+				new CompositeHeuristic(goal),
+				new PatternDatabase(goal),
+				new LinearConflict(goal),
+				new WalkingDistance(goal)};
+		for (final Heuristic h : heuristics) {
+			this.measure("Heuristic.eval[" + h.getClass().getSimpleName() + "]", i -> (long)h.eval(states[i % n]));
+		}
+		
+		final AStar astar = new AStar();
+		for (final Heuristic h : new Heuristic[] {heuristics[2], heuristics[4], heuristics[5], heuristics[6]}) {
+			for (int d=0; d<DEPTHS.length; d++) {
+				final State[] group = puzzles[d];
+				String name = String.format("AStar.exec[%s, %d-%d]", h.getClass().getSimpleName(), DEPTHS[d][0], DEPTHS[d][1]);
+				this.measure(name, i -> astar.exec(group[i % group.length], goal, h).getPath().length());
+			}
+		}
+	}
+	
+	private void measure(String name, Workload workload) {
+		/**
+		 * Warms up and measures one benchmark, then prints its line of the report.
+		 * 
+		 * Operations run in batches so the clock is read rarely enough not to distort cheap
+		 * operations. During warm-up, the batch grows until it takes about a millisecond.
+		 */
+		if (!name.contains(this.filter)) {
+			return;
+		}
+		
+		int batch = 1;
+		int next = 0;
+		long sum = 0;
+		long end = System.nanoTime() + this.warmupNanos;
+		for (long start = System.nanoTime(); start < end; ) {
+			for (int i=0; i<batch; i++) {
+				sum += workload.run(next++ & Integer.MAX_VALUE);
+			}
+			long now = System.nanoTime();
+			if (now - start < 1000000L && batch < (1 << 20)) {
+				batch *= 2;
+			}
+			start = now;
+		}
+		
+		double[] throughput = new double[this.iterations];
+		long operations = 0;
+		long nanos = 0;
+		long bytes = HotPathBenchmark.allocatedBytes() < 0 ? -1 : 0;
+		for (int it=0; it<this.iterations; it++) {
+			long ops = 0;
+			long allocated = HotPathBenchmark.allocatedBytes();
+			long start = System.nanoTime();
+			long now = start;
+			while (now - start < this.iterationNanos) {
+				for (int i=0; i<batch; i++) {
+					sum += workload.run(next++ & Integer.MAX_VALUE);
+				}
+				ops += batch;
+				now = System.nanoTime();
+			}
+			if (bytes >= 0) {
+				bytes += HotPathBenchmark.allocatedBytes() - allocated;
+			}
+			throughput[it] = ops * 1e9 / (now - start);
+			operations += ops;
+			nanos += now - start;
+		}
+		sink += sum;
+		
+		double mean = 0;
+		for (double t : throughput) {
+			mean += t / throughput.length;
+		}
+		double variance = 0;
+		for (double t : throughput) {
+			variance += (t - mean) * (t - mean) / throughput.length;
+		}
+		String allocation = bytes < 0 ? "n/a" : String.format("%.1f", bytes / (double)operations);
+		System.out.println(String.format("%-40s %14.1f %12.1f %10s   (+/- %.1f%%)",
+				name, mean, nanos / (double)operations, allocation, 100 * Math.sqrt(variance) / mean));
+	}
+	
+	private static long allocatedBytes() {
+		/**
+		 * @return the bytes allocated by the current thread so far, or -1 if the JVM can't measure it.
+		 */
+		java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (threads instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean sun = (com.sun.management.ThreadMXBean) threads;
+			if (sun.isThreadAllocatedMemorySupported() && sun.isThreadAllocatedMemoryEnabled()) {
+				return sun.getThreadAllocatedBytes(Thread.currentThread().getId());
+			}
+		}
+		return -1;
+	}
+	
+	public static State[][] generate(State goal, Random random) {
+		/**
+		 * Builds the benchmark puzzles: random walks from the goal, solved with A* and kept
+		 * if their optimal solution length falls in a group that still has room.
+		 * 
+		 * @param goal    the goal state of every puzzle
+		 * @param random  where the walks come from. The same seed always gives the same puzzles.
+		 * @return PER_DEPTH initial states for each entry of DEPTHS.
+		 */
+		State[][] puzzles = new State[DEPTHS.length][PER_DEPTH];
+		int[] found = new int[DEPTHS.length];
+		int remaining = DEPTHS.length * PER_DEPTH;
+		AStar astar = new AStar();
+		ManhattanDistance manhattan = new ManhattanDistance(goal);
+		
+		while (remaining > 0) {
+			State s = goal;
+			Operator last = null;
+			for (int steps = 1 + random.nextInt(60); steps > 0; ) {
+				Operator o = OPERATORS[random.nextInt(OPERATORS.length)];
+				State next = s.transform(o);
+				if (next != null && o != (last == null ? null : last.inverse())) {
+					s = next;
+					last = o;
+					steps--;
+				}
+			}
+			
+			int depth = astar.exec(s, goal, manhattan).getPath().length();
+			for (int d=0; d<DEPTHS.length; d++) {
+				if (DEPTHS[d][0] <= depth && depth <= DEPTHS[d][1] && found[d] < PER_DEPTH) {
+					puzzles[d][found[d]++] = s;
+					remaining--;
+				}
+			}
+		}
+		return puzzles;
+	}
+}
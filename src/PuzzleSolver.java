@@ -1,25 +1,69 @@
-import control_strategies.AStar;
-import database.Path;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import control_strategies.ControlStrategy;
+import control_strategies.SearchBudget;
+import control_strategies.SearchContext;
+import control_strategies.SearchResult;
+import database.DistanceTable;
+import heuristics.PatternDatabase;
 import io.Input;
 import io.Output;
 
 public class PuzzleSolver{
 	
-	public static void main(String[] args) {
+	public static void main(String[] args) throws IOException {
 		/**
 		 * The entry point for the 8-puzzle program that handles all high-level steps:
-		 * 	- Getting input INITIAL_STATE, GOAL_STATE, and HEURISTIC
-		 * 	- Running the A* algorithm to solve the 8-puzzle.
+		 * 	- Getting input INITIAL_STATE, GOAL_STATE, HEURISTIC, and CONTROL_STRATEGY
+		 * 	- Running the control strategy (A*, IDA*, ...) to solve the 8-puzzle.
 		 * 	- Print the result.
 		 * 
+		 * Running with "--pdb-dir DIRECTORY" keeps the pattern database tables in DIRECTORY,
+		 * where they're mapped from if present and written to once built.
+		 * 
+		 * Running with "--tables DIRECTORY" maps the distance tables of the table lookup
+		 * strategy from DIRECTORY, e.g. the ones written by "--precompute DIRECTORY".
+		 * 
+		 * Running with "--precompute DIRECTORY" instead builds the exhaustive distance tables
+		 * used by the table lookup strategy and writes them to DIRECTORY.
+		 * 
+		 * Running with "--batch [FILE] [OPTIONS]" instead solves a stream of puzzles, one per
+		 * line, on a pool of worker threads (see BatchSolver).
+		 * 
+		 * Running with "--serve [OPTIONS]" instead keeps the program running as a solving
+		 * service on localhost (see SolverServer).
+		 * 
 		 * @param args  the command-line arguments to the program.
 		 */
+		if (args.length == 2 && args[0].equals("--precompute")) {
+			DistanceTable.precompute(new File(args[1]));
+			return;
+		}
+		if (args.length > 0 && args[0].equals("--batch")) {
+			BatchSolver.main(Arrays.copyOfRange(args, 1, args.length));
+			return;
+		}
+		if (args.length > 0 && args[0].equals("--serve")) {
+			SolverServer.main(Arrays.copyOfRange(args, 1, args.length));
+			return;
+		}
+		for (int i=0; i<args.length; i++) {
+			switch (args[i]) {
+				case "--pdb-dir":	PatternDatabase.setDefaultDirectory(new File(args[++i])); break;
+				case "--tables":	DistanceTable.setDefaultDirectory(new File(args[++i])); break;
+				default:			throw new IllegalArgumentException("Unknown option " + args[i]);
+			}
+		}
+		
 		//Input input = Input.getHardCoded();
 		Input input = Input.getFromUser();
 		
 		if (input.getInitial().canReach(input.getGoal())){
-			Path path = new AStar().exec(input.getInitial(), input.getGoal(), input.getHeuristic());
-			Output.printDone(path);
+			ControlStrategy cs = input.getControlStrategy();
+			SearchResult result = cs.exec(input.getInitial(), input.getGoal(), input.getHeuristic(), new SearchContext(SearchBudget.UNLIMITED, true));
+			Output.printDone(result, cs);
 		}
 		else {
 			//Not solvable.
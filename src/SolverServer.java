@@ -0,0 +1,433 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import control_strategies.CancellationToken;
+import control_strategies.SearchBudget;
+import control_strategies.SearchResult;
+import control_strategies.SolutionCache;
+import control_strategies.Solver;
+import database.DistanceTable;
+import database.State;
+import heuristics.PatternDatabase;
+import heuristics.WalkingDistance;
+import io.Input;
+import io.Output;
+
+public class SolverServer {
+	/**
+	 * A long-running solving service on localhost, so that clients stop paying for JVM
+	 * startup and table building on every solve. Clients connect over TCP and send puzzles
+	 * one per line, in the same format as batch mode (see Input.parse). Every puzzle is
+	 * answered with one line in the batch result format (see Output.formatResult), whose
+	 * index is the line number of the request on its connection. Answers are written as
+	 * they finish, so a client may send many requests without waiting for each answer.
+	 * A line "quit" closes the connection.
+	 * 
+	 * Connections are served on virtual threads when the JVM has them (Java 21 and later)
+	 * and on a cached pool of platform threads otherwise. They only read, wait and write.
+	 * The searches run on a fixed pool of one thread per processor, so the CPU is never
+	 * oversubscribed however many clients are connected.
+	 * 
+	 * Small requests (8-puzzles, which take about a millisecond each) are micro-batched. While
+	 * every search thread is busy they wait in a queue, and the next thread to free up takes
+	 * up to --batch-size of them at once. Under load, the cost of handing work from thread
+	 * to thread is paid once per batch instead of once per puzzle. Larger puzzles are handed
+	 * to the search threads one at a time.
+	 * 
+	 * Heuristic tables (pattern databases, walking distance tables and distance tables) are
+	 * kept in static caches, so only the first request that needs one builds it. With --warm,
+	 * the tables for the usual goals are built before the server starts listening. Solutions
+	 * can be shared between requests and runs with a SolutionCache (--cache), which is saved
+	 * when the server shuts down. Every request can be held to a SearchBudget as in batch mode,
+	 * and the searches of a client that disconnects are cancelled.
+	 */
+	
+	public static final int DEFAULT_PORT = 7008;
+	
+	private final int port;
+	private final int batchSize;			// the most small requests solved as one task
+	private final int inFlight;				// the most requests a connection may have waiting for an answer
+	private final SolutionCache cache;		// solutions of earlier puzzles (null for none)
+	private final long timeoutMillis;		// how long each request may take (0 for no limit)
+	private final long maxNodes;			// the most nodes each search may expand (0 for no limit)
+	private final long maxBytes;			// the most bytes each search may allocate (0 for no limit)
+	
+	private final ExecutorService searches;		// the fixed pool the searches run on
+	private final ExecutorService connections;	// virtual threads, or a cached pool, for the clients
+	private final Semaphore idle;				// one permit per search thread that has no work
+	private final LinkedBlockingQueue<Request> small = new LinkedBlockingQueue<>();	// small requests waiting for a batch
+	private final Thread batcher;
+	private volatile ServerSocket socket;
+	
+	public SolverServer(int port, int threads, int batchSize, int inFlight, SolutionCache cache,
+			long timeoutMillis, long maxNodes, long maxBytes) {
+		/**
+		 * @param port           the localhost port to listen on (0 for any free port)
+		 * @param threads        the number of threads running searches
+		 * @param batchSize      the most small requests solved together as one task
+		 * @param inFlight       the most requests one connection may have waiting for an answer
+		 * @param cache          where solutions are looked up and remembered (null for none)
+		 * @param timeoutMillis  how long each request may take from when it's read (0 for no limit)
+		 * @param maxNodes       the most nodes each search may expand (0 for no limit)
+		 * @param maxBytes       the most bytes each search may allocate (0 for no limit)
+		 */
+		if (threads < 1 || batchSize < 1 || inFlight < 1) {
+			throw new IllegalArgumentException("threads, batch-size and in-flight must be positive");
+		}
+		this.port = port;
+		this.batchSize = batchSize;
+		this.inFlight = inFlight;
+		this.cache = cache;
+		this.timeoutMillis = timeoutMillis;
+		this.maxNodes = maxNodes;
+		this.maxBytes = maxBytes;
+		
+		this.searches = Executors.newFixedThreadPool(threads, SolverServer.daemons("solver-search-"));
+		this.connections = SolverServer.newConnectionExecutor();
+		this.idle = new Semaphore(threads, true);
+		this.batcher = new Thread(this::batch, "solver-batcher");
+		this.batcher.setDaemon(true);
+	}
+	
+	public static void main(String[] args) throws IOException {
+		/**
+		 * Usage: SolverServer [--port PORT] [--threads N] [--batch-size B] [--in-flight M] [--warm]
+		 *                     [--cache SIZE] [--cache-file CACHE]
+		 *                     [--timeout MS] [--max-nodes NODES] [--max-memory BYTES]
+		 *                     [--pdb-dir DIR] [--tables TABLES]
+		 * 
+		 * Listens on localhost until the process is stopped. PORT defaults to 7008, N to the
+		 * number of processors, B to 32 and M to 1024. The other options are as in batch mode
+		 * (see BatchSolver).
+		 * 
+		 * @param args  the command-line arguments to the program.
+		 */
+		int port = DEFAULT_PORT;
+		int threads = Runtime.getRuntime().availableProcessors();
+		int batchSize = 32;
+		int inFlight = 1024;
+		boolean warm = false;
+		int cacheSize = 0;
+		File cacheFile = null;
+		long timeoutMillis = 0;
+		long maxNodes = 0;
+		long maxBytes = 0;
+		
+		for (int i=0; i<args.length; i++) {
+			switch (args[i]) {
+				case "--port":			port = Integer.parseInt(args[++i]); break;
+				case "--threads":		threads = Integer.parseInt(args[++i]); break;
+				case "--batch-size":	batchSize = Integer.parseInt(args[++i]); break;
+				case "--in-flight":		inFlight = Integer.parseInt(args[++i]); break;
+				case "--warm":			warm = true; break;
+				case "--cache":			cacheSize = Integer.parseInt(args[++i]); break;
+				case "--cache-file":	cacheFile = new File(args[++i]); break;
+				case "--timeout":		timeoutMillis = Long.parseLong(args[++i]); break;
+				case "--max-nodes":		maxNodes = Long.parseLong(args[++i]); break;
+				case "--max-memory":	maxBytes = Long.parseLong(args[++i]); break;
+				case "--pdb-dir":		PatternDatabase.setDefaultDirectory(new File(args[++i])); break;
+				case "--tables":		DistanceTable.setDefaultDirectory(new File(args[++i])); break;
+				default:				throw new IllegalArgumentException("Unknown option " + args[i]);
+			}
+		}
+		
+		if (cacheFile != null && cacheSize <= 0) {
+			throw new IllegalArgumentException("--cache-file needs a cache size (--cache SIZE)");
+		}
+		if (warm) {
+			SolverServer.warm();
+		}
+		SolutionCache cache = cacheSize > 0 ? new SolutionCache(cacheSize, cacheFile) : null;
+		final SolverServer server = new SolverServer(port, threads, batchSize, inFlight, cache, timeoutMillis, maxNodes, maxBytes);
+		Runtime.getRuntime().addShutdownHook(new Thread(server::close, "solver-shutdown"));
+		server.serve();
+	}
+	
+	public static void warm() {
+		/**
+		 * Builds the pattern databases and Walking Distance tables for the usual goals of the
+		 * 8-puzzle and the 15-puzzle (the blank in the last cell) and the distance tables of
+		 * the 8-puzzle, so that the first requests don't wait for them.
+		 */
+		for (int width : new int[] {State.WIDTH, State.MAX_WIDTH}) {
+			State goal = State.canonicalGoal(width, width * width - 1);
+			new PatternDatabase(goal);
+			new WalkingDistance(goal);
+		}
+		for (int blank=0; blank<State.CELLS; blank++) {
+			DistanceTable.forBlank(blank, DistanceTable.getDefaultDirectory());
+		}
+	}
+	
+	public void serve() throws IOException {
+		/**
+		 * Listens for clients until the server is closed.
+		 */
+		this.socket = new ServerSocket(this.port, 128, InetAddress.getLoopbackAddress());
+		this.batcher.start();
+		System.err.println("Listening on " + this.socket.getInetAddress().getHostAddress() + ":" + this.socket.getLocalPort());
+		
+		try {
+			while (true) {
+				final Socket client = this.socket.accept();
+				this.connections.execute(() -> this.handle(client));
+			}
+		}
+		catch (IOException | RejectedExecutionException e) {
+			if (!this.socket.isClosed()) {
+				throw e;
+			}
+		}
+	}
+	
+	public int getPort() {
+		/**
+		 * @return the port the server listens on, or -1 if it isn't listening yet.
+		 */
+		ServerSocket socket = this.socket;
+		return socket == null ? -1 : socket.getLocalPort();
+	}
+	
+	public void close() {
+		/**
+		 * Stops listening, cancels the searches still running and saves the solution cache.
+		 */
+		try {
+			if (this.socket != null) {
+				this.socket.close();
+			}
+		}
+		catch (IOException e) {
+			// nothing more to do with it
+		}
+		this.batcher.interrupt();
+		this.connections.shutdownNow();
+		this.searches.shutdownNow();
+		
+		if (this.cache != null) {
+			try {
+				this.cache.save();
+			}
+			catch (IOException e) {
+				System.err.println("Could not save the solution cache: " + e.getMessage());
+			}
+		}
+	}
+	
+	private void handle(Socket client) {
+		/**
+		 * Serves one client: reads its requests, hands them to the search threads and writes
+		 * the answers as they finish, until the client closes the connection or sends "quit".
+		 * Every answer is written before the connection is closed. If the client goes away
+		 * first, its searches are cancelled.
+		 */
+		CancellationToken token = new CancellationToken();
+		Semaphore window = new Semaphore(this.inFlight);
+		try (Socket socket = client;
+				BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+				Writer writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+			String line;
+			for (long index=0; (line = reader.readLine()) != null; index++) {
+				if (line.trim().equals("quit")) {
+					break;
+				}
+				if (BatchSolver.isSkipped(line)) {
+					continue;
+				}
+				
+				window.acquire();
+				final long number = index;
+				this.submit(index, line, token).whenCompleteAsync((answer, failure) -> {
+					try {
+						synchronized (writer) {
+							writer.write(failure == null ? answer : Output.formatError(number, String.valueOf(failure)));
+							writer.write('\n');
+							writer.flush();
+						}
+					}
+					catch (IOException e) {
+						// the client is gone, so nobody is waiting for the other answers either
+						token.cancel();
+					}
+					finally {
+						window.release();
+					}
+				}, this.connections);
+			}
+			window.acquire(this.inFlight);
+		}
+		catch (IOException e) {
+			// the client is gone
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		finally {
+			token.cancel();
+		}
+	}
+	
+	private CompletableFuture<String> submit(long index, String line, CancellationToken token) throws InterruptedException {
+		/**
+		 * Hands a request to the search threads: into the batch queue if it's an 8-puzzle,
+		 * otherwise straight to the next free thread.
+		 * 
+		 * @return the answer to the request, once it's solved.
+		 */
+		SearchBudget budget = new SearchBudget(this.timeoutMillis, this.maxNodes, this.maxBytes, token);
+		Request request = new Request(index, line, budget);
+		
+		String initial = line.trim().split("\\s+")[0];
+		if (initial.length() <= State.CELLS) {
+			this.small.add(request);
+		}
+		else {
+			this.idle.acquire();
+			this.execute(request);
+		}
+		return request.answer;
+	}
+	
+	private void batch() {
+		/**
+		 * Waits for small requests and a free search thread, then gives the thread every
+		 * request queued by then (up to the batch size) as a single task.
+		 */
+		ArrayList<Request> batch = new ArrayList<>(this.batchSize);
+		try {
+			while (true) {
+				batch.add(this.small.take());
+				this.idle.acquire();
+				this.small.drainTo(batch, this.batchSize - 1);
+				
+				final Request[] requests = batch.toArray(new Request[batch.size()]);
+				batch.clear();
+				this.execute(() -> {
+					// a request never throws (see Request.run), so one that fails doesn't cost the others their answers
+					for (Request request : requests) {
+						request.run();
+					}
+				});
+			}
+		}
+		catch (InterruptedException e) {
+			// the server is closing
+		}
+	}
+	
+	private void execute(Runnable task) {
+		/**
+		 * Runs a task on a search thread that holds an idle permit, and gives the permit back
+		 * once the task is done.
+		 */
+		try {
+			this.searches.execute(() -> {
+				try {
+					task.run();
+				}
+				finally {
+					this.idle.release();
+				}
+			});
+		}
+		catch (RejectedExecutionException e) {
+			// the server is closing
+			this.idle.release();
+		}
+	}
+	
+	private String solve(long index, String line, SearchBudget budget) {
+		/**
+		 * @return the answer to one request, formatted as in batch mode.
+		 */
+		Input input;
+		try {
+			input = Input.parse(line);
+		}
+		catch (IllegalArgumentException e) {
+			return Output.formatError(index, e.getMessage());
+		}
+		
+		Solver solver = new Solver(input.getControlStrategy(), goal -> input.getHeuristic(), this.cache);
+		SearchResult result = solver.solve(input.getInitial(), input.getGoal(), budget);
+		return Output.formatResult(index, result);
+	}
+	
+	private class Request implements Runnable {
+		/**
+		 * A puzzle read from a client and the answer it's waiting for.
+		 */
+		final long index;
+		final String line;
+		final SearchBudget budget;
+		final CompletableFuture<String> answer = new CompletableFuture<>();
+		
+		Request(long index, String line, SearchBudget budget) {
+			this.index = index;
+			this.line = line;
+			this.budget = budget;
+		}
+		
+		@Override
+		public void run() {
+			/**
+			 * Solves the request and completes its answer, even if the search fails. Errors
+			 * like running out of memory complete it exceptionally rather than escaping, and
+			 * the connection answers them with an error line.
+			 */
+			try {
+				this.answer.complete(SolverServer.this.solve(this.index, this.line, this.budget));
+			}
+			catch (RuntimeException e) {
+				this.answer.complete(Output.formatError(this.index, String.valueOf(e.getMessage())));
+			}
+			catch (Throwable e) {
+				this.answer.completeExceptionally(e);
+			}
+		}
+	}
+	
+	private static ExecutorService newConnectionExecutor() {
+		/**
+		 * @return an executor that starts a virtual thread per task if the JVM has them
+		 *         (Executors.newVirtualThreadPerTaskExecutor, found by reflection so this
+		 *         still runs on older JVMs), and a cached pool of daemon threads otherwise.
+		 */
+		try {
+			return (ExecutorService)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		}
+		catch (ReflectiveOperationException e) {
+			return Executors.newCachedThreadPool(SolverServer.daemons("solver-connection-"));
+		}
+	}
+	
+	private static ThreadFactory daemons(final String prefix) {
+		/**
+		 * @return a factory of daemon threads named prefix followed by a number.
+		 */
+		final AtomicInteger count = new AtomicInteger();
+		return task -> {
+			Thread thread = new Thread(task, prefix + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+}
@@ -1,16 +1,17 @@
 package control_strategies;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-
+import database.BucketQueue;
+import database.CostMap;
 import database.State;
 import database.Path;
+import database.SearchNode;
+import database.StateSet;
 import heuristics.Heuristic;
-import io.Output;
+import operators.Operator;
 
 public class AStar extends ControlStrategy{
 	
-	public Path exec(State state, State state2, Heuristic heuristic) {
+	protected Path search(State state, State state2, Heuristic heuristic, SearchContext context) {
 		/**
 		 * FROM MODULE 4 (PAGE 13 CLASS NOTES)
 		 * 
@@ -18,78 +19,106 @@ public class AStar extends ControlStrategy{
 		 * 
 		 *	1. Form a one-element queue consisting of a zero-length path that contains 
 		 *	   on a root node.
-		 *
+		 * 
 		 *	2. Until the first path in the queue terminates at the goal node or the
 		 *	   queue is empty,
-		 *		
+		 * 
 		 *		2a. Remove the first path from the queue; create new paths by extending
 		 *		    the first path to all the neighbors of the terminal node.
-		 *		
+		 * 
 		 *		2b. Reject all new paths with loops
-		 *
+		 * 
 		 *		2c. If two or more paths reach a common node, delete all those paths
 		 *		    except the one that reaches the common node with minimum cost.
-		 *		
+		 * 
 		 *		2d. Sort the entire queue by the sum of the path length and a lower-bound
 		 *		    estimate of the cost remaining, with least cost paths in front.
-		 *
+		 * 
 		 *	3. If the goal node is found, announce success; otherwise, announce failure.
 		 *     (we return the path on success - null on failure)
-		 *     
+		 * 
+		 * Paths are represented by search nodes that only point back to their parent,
+		 * and the Path is rebuilt once the goal is reached. Estimates are integers, so the
+		 * queue is a BucketQueue with one bucket per estimate and 2d costs O(1) per path
+		 * instead of a full sort per expansion. Ties go to the deepest path, and then to the
+		 * one queued last. Expanded states go into a closed set (a bitset indexed by
+		 * State.rank), which rejects loops (2b) as well as paths that reach an
+		 * already-expanded node. For 2c, the cheapest known cost of every queued node is
+		 * remembered (in a CostMap, again indexed by rank) and worse paths are lazily skipped
+		 * when they reach the front of the queue. New estimates are computed incrementally
+		 * from the parent's estimate via Heuristic.evalMove.
+		 * 
 		 * @param initial    the state we start with
 		 * @param goal       the state we're trying to reach
 		 * @param heuristic  the heuristic used to solve the 8-puzzle more efficiently
+		 * @param context    where the explored states and statistics are recorded
 		 * 
 		 * @return the optimal path to solve the puzzle. If no solution exists, null is returned.
 		 */
 		
 		// 1.
-		ArrayList<Path> paths = new ArrayList<>();
-		paths.add(new Path(state));
+		BucketQueue paths = new BucketQueue();
+		CostMap bestCosts = new CostMap();
+		StateSet closed = new StateSet();
+		paths.add(new SearchNode(state, heuristic.eval(state)));
+		bestCosts.put(state, 0);
+		context.evaluated();
+		context.open(paths.size());
 		
 		// 2.
-		while (!paths.isEmpty() && !(paths.get(0).terminalState().equals(state2))) {
-			
-			// DEBUG
-			//Output.printPathQueue(paths, heuristic);
+		while (!paths.isEmpty()) {
 			
 			// 2a.
-			Path best = paths.remove(0);
-			ArrayList<State> expansions = best.terminalState().getNeighbors();
+			SearchNode best = paths.poll();
+			State terminal = best.getState();
+			
+			// 2c. a cheaper path to this node was queued after this one.
+			if (best.getCost() > bestCosts.get(terminal) || !closed.add(terminal)) {
+				context.duplicate();
+				continue;
+			}
 			
 			// DEBUG
-			//Output.printChosenPath(best);
+			//Output.printChosenPath(best.toPath());
+			
+			if (terminal.equals(state2)) {
+				// 3.
+				return best.toPath();
+			}
+			int cost = best.getCost() + 1;
+			int estimate = best.getEstimate() - best.getCost();
+			context.expanded(best, estimate);
 			
-			for (State s : expansions) {
+			for (Operator o : Operator.values()) {
+				State s = terminal.transform(o);
+				
+				if (s == null) {
+					continue;
+				}
+				context.generated(s);
 				
 				// 2b.
-				if (!best.contains(s)) {
-					Path expandedPath = best.copy();
-					expandedPath.add(s);
-					paths.add(expandedPath);
+				if (closed.contains(s)) {
+					context.duplicate();
+					continue;
 				}
-			}
-			
-			
-			// 2c.
-			HashMap<State, Path> bestPaths = new HashMap<>();
-			for (Path p : paths) {
-				State terminal = p.terminalState();
-				boolean keyExists = bestPaths.containsKey(terminal);
-				if ((keyExists && p.estimate(heuristic) < bestPaths.get(terminal).estimate(heuristic)) || !keyExists) {
-					bestPaths.put(terminal, p);
+				
+				// 2c.
+				int known = bestCosts.get(s);
+				if (known >= 0 && known <= cost) {
+					context.duplicate();
+					continue;
 				}
+				bestCosts.put(s, cost);
+				
+				// 2d.
+				paths.add(new SearchNode(s, cost, cost + heuristic.evalMove(terminal, estimate, s), best, o));
+				context.evaluated();
 			}
-			paths = new ArrayList<>(bestPaths.values());
-			
-			// 2d.
-			paths.sort((a, b) -> a.compareTo(b, heuristic));
+			context.open(paths.size());
 		}
 		
 		// 3
-		if (!paths.isEmpty()) {
-			return paths.get(0);
-		}
 		return null;
 	}
 	
@@ -0,0 +1,115 @@
+package control_strategies;
+
+import database.Path;
+import database.State;
+import heuristics.Heuristic;
+
+public class AnytimeAStar extends ControlStrategy {
+	/**
+	 * Anytime Repairing A* (ARA*, Likhachev, Gordon & Thrun, 2003): a weighted A* search
+	 * (see WeightedAStar) that finds a first solution quickly with a large weight and then
+	 * keeps improving it with smaller and smaller weights for as long as its time budget allows.
+	 * 
+	 * Every pass reuses the work of the previous ones. Nodes are only expanded again when
+	 * a cheaper path to them was found, and nodes that can't lead to a shorter solution than
+	 * the current one are dropped. After each pass, the solution is known to be at most
+	 * min(weight, solution length / least unweighted estimate left) times longer than the
+	 * shortest one, which is reported to the listener along with the solution. The bound of
+	 * the solution returned is also in the SearchResult (see SearchResult.getBound).
+	 * 
+	 * The search stops when a pass with weight 1 completes, since its solution is optimal,
+	 * or when the budget runs out, in which case the best solution so far is returned. The
+	 * first solution is always searched for to the end, unless the SearchBudget of the
+	 * search runs out first. Once there is a solution, running out of the SearchBudget just
+	 * ends the improvements like the anytime budget does.
+	 */
+	
+	public interface Listener {
+		/**
+		 * Told about every solution found by an anytime search, on the thread running the search.
+		 */
+		void improved(Path path, double bound);
+	}
+	
+	private final double initialWeight;
+	private final double step;
+	private final long budgetNanos;
+	private final Listener listener;		// null for none
+	
+	public AnytimeAStar() {
+		/**
+		 * Creates a search that starts with weight 3, lowers it by 0.5 after every pass,
+		 * has one second to improve its solution and reports to nobody.
+		 */
+		this(3, 0.5, 1000, null);
+	}
+	
+	public AnytimeAStar(double initialWeight, double step, long budgetMillis, Listener listener) {
+		/**
+		 * @param initialWeight  the weight of the first pass (at least 1)
+		 * @param step           how much the weight is lowered after every pass (more than 0)
+		 * @param budgetMillis   how long the search may run before returning its best solution
+		 * @param listener       told about every solution and its bound (null for none)
+		 */
+		if (!(initialWeight >= 1) || !(step > 0) || budgetMillis < 0)
+			throw new IllegalArgumentException("An anytime search needs a weight of at least 1, a positive step and a budget");
+		this.initialWeight = initialWeight;
+		this.step = step;
+		this.budgetNanos = budgetMillis * 1000000;
+		this.listener = listener;
+	}
+	
+	protected Path search(State state, State state2, Heuristic heuristic, SearchContext context) {
+		/**
+		 * @param initial    the state we start with
+		 * @param goal       the state we're trying to reach
+		 * @param heuristic  the heuristic used to solve the 8-puzzle more efficiently
+		 * @param context    where the explored states and statistics are recorded
+		 * 
+		 * @return the best path found within the budget. If no solution exists, null is returned.
+		 */
+		long deadline = System.nanoTime() + this.budgetNanos;
+		double weight = this.initialWeight;
+		WeightedAStar.Search search = new WeightedAStar.Search(state, state2, heuristic, context, weight);
+		search.improve(Long.MAX_VALUE);
+		
+		int reported = -1;
+		double reportedBound = Double.POSITIVE_INFINITY;
+		while (search.getSolutionLength() >= 0) {
+			int length = search.getSolutionLength();
+			double next = Math.max(1, weight - this.step);
+			int lower = search.reweigh(next);
+			double bound = lower >= length ? 1 : Math.min(weight, (double)length / lower);
+			
+			if (length != reported || bound < reportedBound) {
+				reported = length;
+				reportedBound = bound;
+				context.bounded(bound);
+				if (this.listener != null)
+					this.listener.improved(search.getSolution(), bound);
+			}
+			if (bound <= 1)
+				break;
+			
+			weight = next;
+			try {
+				if (!search.improve(deadline))
+					break;
+			}
+			catch (SearchStoppedException e) {
+				// out of the context's budget, but there is a solution to return
+				break;
+			}
+		}
+		return search.getSolution();
+	}
+	
+	@Override
+	public boolean isOptimal() {
+		return false;
+	}
+	
+	public String getName() {
+		return "ANYTIME A* ALGORITHM (ARA*)";
+	}
+}
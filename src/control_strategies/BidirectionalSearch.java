@@ -0,0 +1,281 @@
+package control_strategies;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.PriorityQueue;
+
+import database.Path;
+import database.SearchNode;
+import database.State;
+import database.StateSet;
+import heuristics.Heuristic;
+import heuristics.NoHeuristic;
+import operators.Operator;
+
+public class BidirectionalSearch extends ControlStrategy{
+	
+	protected Path search(State state, State state2, Heuristic heuristic, SearchContext context) {
+		/**
+		 * Searches forwards from the initial state and backwards from the goal state at the
+		 * same time until the two searches meet in the middle. Every move can be undone, so
+		 * the backward search expands states exactly like the forward one.
+		 * 
+		 * Without a heuristic, both sides run breadth-first one layer at a time. Otherwise
+		 * the Meet in the Middle (MM) algorithm is used: each side expands nodes in order of
+		 * max(path length + estimate, 2 * path length), where the backward side estimates the
+		 * distance to the initial state with heuristic.forGoal(initial).
+		 * 
+		 * @param initial    the state we start with
+		 * @param goal       the state we're trying to reach
+		 * @param heuristic  the heuristic used to solve the 8-puzzle more efficiently
+		 * @param context    where the explored states and statistics are recorded
+		 * 
+		 * @return the optimal path to solve the puzzle. If no solution exists, null is returned.
+		 */
+		if (state.equals(state2)) {
+			return new Path(state);
+		}
+		
+		if (heuristic instanceof NoHeuristic) {
+			return this.breadthFirst(state, state2, context);
+		}
+		return this.meetInTheMiddle(state, state2, heuristic, heuristic.forGoal(state), context);
+	}
+	
+	private Path breadthFirst(State initial, State goal, SearchContext context) {
+		/**
+		 * Bidirectional breadth-first search.
+		 * 
+		 *	1. Start a forward layer with the initial state and a backward layer with the goal state.
+		 * 
+		 *	2. Until a layer is empty, expand every node of the smaller layer. If a new state
+		 *	   has already been reached by the other side, the two paths meet; since every
+		 *	   shorter connection would have been found in an earlier layer, it is optimal.
+		 * 
+		 *	3. If the searches never meet, announce failure.
+		 */
+		
+		// 1.
+		HashMap<State, SearchNode> forward = new HashMap<>();
+		HashMap<State, SearchNode> backward = new HashMap<>();
+		ArrayList<SearchNode> forwardLayer = new ArrayList<>();
+		ArrayList<SearchNode> backwardLayer = new ArrayList<>();
+		
+		SearchNode root = new SearchNode(initial, 0);
+		SearchNode target = new SearchNode(goal, 0);
+		forward.put(initial, root);
+		backward.put(goal, target);
+		forwardLayer.add(root);
+		backwardLayer.add(target);
+		
+		// 2.
+		while (!forwardLayer.isEmpty() && !backwardLayer.isEmpty()) {
+			boolean isForward = forwardLayer.size() <= backwardLayer.size();
+			ArrayList<SearchNode> layer = isForward ? forwardLayer : backwardLayer;
+			HashMap<State, SearchNode> seen = isForward ? forward : backward;
+			HashMap<State, SearchNode> other = isForward ? backward : forward;
+			ArrayList<SearchNode> next = new ArrayList<>();
+			
+			for (SearchNode n : layer) {
+				context.expanded(n.getState());
+				for (Operator o : Operator.values()) {
+					State s = n.getState().transform(o);
+					if (s == null) {
+						continue;
+					}
+					context.generated(s);
+					
+					if (seen.containsKey(s)) {
+						context.duplicate();
+						continue;
+					}
+					
+					SearchNode child = new SearchNode(s, n.getCost() + 1, n.getCost() + 1, n, o);
+					SearchNode meet = other.get(s);
+					if (meet != null) {
+						return isForward ? BidirectionalSearch.join(child, meet) : BidirectionalSearch.join(meet, child);
+					}
+					seen.put(s, child);
+					next.add(child);
+				}
+			}
+			
+			if (isForward) {
+				forwardLayer = next;
+			}
+			else {
+				backwardLayer = next;
+			}
+			context.open(forwardLayer.size() + backwardLayer.size());
+		}
+		
+		// 3.
+		return null;
+	}
+	
+	private Path meetInTheMiddle(State initial, State goal, Heuristic toGoal, Heuristic toInitial, SearchContext context) {
+		/**
+		 * Meet in the Middle (Holte et al., 2016).
+		 * 
+		 *	1. Form a forward queue holding the initial state and a backward queue holding the
+		 *	   goal state. The best known solution length U starts at infinity.
+		 * 
+		 *	2. Until a queue is empty,
+		 * 
+		 *		2a. Let C be the smallest priority at the front of either queue. If U <= C,
+		 *		    no unexplored connection can be shorter, so the best solution is optimal.
+		 * 
+		 *		2b. Expand the front node of the queue with the smaller priority. Reject
+		 *		    children reached at least as cheaply before on the same side.
+		 * 
+		 *		2c. If a child has been reached by the other side, update U with the length
+		 *		    of the connection through it.
+		 * 
+		 *	3. If a solution was found, announce success; otherwise, announce failure.
+		 */
+		
+		// 1.
+		Comparator<SearchNode> byPriority = new Comparator<SearchNode>() {
+			@Override
+			public int compare(SearchNode a, SearchNode b) {
+				int priority = Integer.compare(BidirectionalSearch.priority(a), BidirectionalSearch.priority(b));
+				return priority != 0 ? priority : a.compareTo(b);
+			}
+		};
+		PriorityQueue<SearchNode> forwardQueue = new PriorityQueue<>(byPriority);
+		PriorityQueue<SearchNode> backwardQueue = new PriorityQueue<>(byPriority);
+		HashMap<State, SearchNode> forward = new HashMap<>();
+		HashMap<State, SearchNode> backward = new HashMap<>();
+		StateSet forwardClosed = new StateSet();
+		StateSet backwardClosed = new StateSet();
+		
+		SearchNode root = new SearchNode(initial, toGoal.eval(initial));
+		SearchNode target = new SearchNode(goal, toInitial.eval(goal));
+		forward.put(initial, root);
+		backward.put(goal, target);
+		forwardQueue.add(root);
+		backwardQueue.add(target);
+		context.evaluated();
+		context.evaluated();
+		
+		int best = Integer.MAX_VALUE;
+		SearchNode bestForward = null;
+		SearchNode bestBackward = null;
+		
+		// 2.
+		while (true) {
+			SearchNode f = BidirectionalSearch.peek(forwardQueue, forward, forwardClosed);
+			SearchNode b = BidirectionalSearch.peek(backwardQueue, backward, backwardClosed);
+			if (f == null || b == null) {
+				break;
+			}
+			
+			// 2a.
+			int c = Math.min(BidirectionalSearch.priority(f), BidirectionalSearch.priority(b));
+			if (best <= c) {
+				break;
+			}
+			
+			// 2b.
+			boolean isForward = BidirectionalSearch.priority(f) <= BidirectionalSearch.priority(b);
+			PriorityQueue<SearchNode> queue = isForward ? forwardQueue : backwardQueue;
+			HashMap<State, SearchNode> seen = isForward ? forward : backward;
+			HashMap<State, SearchNode> other = isForward ? backward : forward;
+			StateSet closed = isForward ? forwardClosed : backwardClosed;
+			Heuristic heuristic = isForward ? toGoal : toInitial;
+			
+			SearchNode n = queue.poll();
+			State terminal = n.getState();
+			closed.add(terminal);
+			int cost = n.getCost() + 1;
+			int estimate = n.getEstimate() - n.getCost();
+			if (isForward) {
+				context.expanded(n, estimate);
+			}
+			else {
+				context.expanded(terminal);
+			}
+			
+			for (Operator o : Operator.values()) {
+				State s = terminal.transform(o);
+				if (s == null) {
+					continue;
+				}
+				context.generated(s);
+				
+				SearchNode known = seen.get(s);
+				if (known != null && known.getCost() <= cost) {
+					context.duplicate();
+					continue;
+				}
+				closed.remove(s);
+				
+				SearchNode child = new SearchNode(s, cost, cost + heuristic.evalMove(terminal, estimate, s), n, o);
+				seen.put(s, child);
+				queue.add(child);
+				context.evaluated();
+				
+				// 2c.
+				SearchNode meet = other.get(s);
+				if (meet != null && cost + meet.getCost() < best) {
+					best = cost + meet.getCost();
+					bestForward = isForward ? child : meet;
+					bestBackward = isForward ? meet : child;
+				}
+			}
+			context.open(forwardQueue.size() + backwardQueue.size());
+		}
+		
+		// 3.
+		if (bestForward == null) {
+			return null;
+		}
+		return BidirectionalSearch.join(bestForward, bestBackward);
+	}
+	
+	private static int priority(SearchNode n) {
+		/**
+		 * @return the MM priority of a node: max(path length + estimate, 2 * path length).
+		 */
+		return Math.max(n.getEstimate(), 2 * n.getCost());
+	}
+	
+	private static SearchNode peek(PriorityQueue<SearchNode> queue, HashMap<State, SearchNode> seen, StateSet closed) {
+		/**
+		 * Discards queued nodes that were superseded by a cheaper path or already expanded.
+		 * 
+		 * @return the front of the queue, or null if the queue is empty.
+		 */
+		SearchNode n = queue.peek();
+		while (n != null && (seen.get(n.getState()) != n || closed.contains(n.getState()))) {
+			queue.poll();
+			n = queue.peek();
+		}
+		return n;
+	}
+	
+	private static Path join(SearchNode forward, SearchNode backward) {
+		/**
+		 * Joins two searches that reached the same state.
+		 * 
+		 * @param forward   the forward search's node at the meeting state
+		 * @param backward  the backward search's node at the meeting state
+		 * @return the path from the initial state through the meeting state to the goal state.
+		 */
+		ArrayList<State> states = new ArrayList<>(forward.getCost() + backward.getCost() + 1);
+		for (SearchNode n = forward; n != null; n = n.getParent()) {
+			states.add(n.getState());
+		}
+		Collections.reverse(states);
+		for (SearchNode n = backward.getParent(); n != null; n = n.getParent()) {
+			states.add(n.getState());
+		}
+		return new Path(states);
+	}
+	
+	public String getName() {
+		return "BIDIRECTIONAL SEARCH";
+	}
+}
@@ -0,0 +1,25 @@
+package control_strategies;
+
+public class CancellationToken {
+	/**
+	 * Lets one thread ask searches running on other threads to stop. A token is handed to
+	 * searches in their SearchBudget, and every search holding it stops soon after cancel
+	 * is called, with the outcome CANCELLED. A token can't be reset once cancelled.
+	 */
+	
+	private volatile boolean cancelled = false;
+	
+	public void cancel() {
+		/**
+		 * Asks every search holding this token to stop.
+		 */
+		this.cancelled = true;
+	}
+	
+	public boolean isCancelled() {
+		/**
+		 * @return whether cancel has been called.
+		 */
+		return this.cancelled;
+	}
+}
@@ -5,10 +5,67 @@ import database.State;
 import heuristics.Heuristic;
 
 public abstract class ControlStrategy {
-	public Path exec(State state, State state2, Heuristic heuristic) {
+	public SearchResult exec(State state, State state2, Heuristic heuristic) {
+		/**
+		 * Runs the search with a new SearchContext.
+		 */
+		return this.exec(state, state2, heuristic, new SearchContext());
+	}
+	
+	public SearchResult exec(State state, State state2, Heuristic heuristic, SearchBudget budget) {
+		/**
+		 * Runs the search with a new SearchContext that keeps it within the budget.
+		 */
+		return this.exec(state, state2, heuristic, new SearchContext(budget));
+	}
+	
+	public SearchResult exec(State state, State state2, Heuristic heuristic, SearchContext context) {
+		/**
+		 * Runs the search, recording the explored states and statistics in the context.
+		 * Puzzles with no solution are rejected before searching. A search that spends the
+		 * context's budget or is cancelled stops early, and its result says why (see
+		 * SearchResult.Outcome) and holds the statistics and partial path so far.
+		 * 
+		 * @param initial    the state we start with
+		 * @param goal       the state we're trying to reach
+		 * @param heuristic  the heuristic used to solve the 8-puzzle more efficiently
+		 * @param context    where the explored states and statistics are recorded
+		 * 
+		 * @return the path found by the search and its statistics.
+		 */
+		context.start();
+		if (!state.canReach(state2))
+			return context.finish(null);
+		
+		Path path;
+		try {
+			context.checkBudget();
+			path = this.search(state, state2, heuristic, context);
+		}
+		catch (SearchStoppedException e) {
+			return context.stop(e.getOutcome());
+		}
+		return context.finish(path);
+	}
+	
+	protected Path search(State state, State state2, Heuristic heuristic, SearchContext context) {
+		/**
+		 * The search itself, implemented by each control strategy. Implementations keep no
+		 * state of their own between calls, so the same control strategy can run several
+		 * searches at once as long as each has its own context.
+		 * 
+		 * @return the path found, or null if there is none.
+		 */
 		return null;
 	}
 	
+	public boolean isOptimal() {
+		/**
+		 * @return whether every path the search finds is a shortest one.
+		 */
+		return true;
+	}
+	
 	public String getName() {
 		return "";
 	}
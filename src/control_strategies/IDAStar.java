@@ -0,0 +1,110 @@
+package control_strategies;
+
+import java.util.ArrayList;
+
+import database.Path;
+import database.State;
+import heuristics.Heuristic;
+import operators.Operator;
+
+public class IDAStar extends ControlStrategy{
+	
+	protected Path search(State state, State state2, Heuristic heuristic, SearchContext context) {
+		/**
+		 * Iterative Deepening A* (IDA*)
+		 * 
+		 *	1. Set the bound to the heuristic estimate of the initial state.
+		 * 
+		 *	2. Do a depth-first search from the initial state, cutting off every path whose
+		 *	   length plus heuristic estimate exceeds the bound. A path never moves the blank
+		 *	   straight back to where it just came from.
+		 * 
+		 *	3. If the goal was reached, announce success. Otherwise raise the bound to the
+		 *	   smallest estimate that was cut off and go back to 2. If nothing was cut off,
+		 *	   announce failure.
+		 * 
+		 * Only the current path is kept in memory, so memory grows with the solution length
+		 * rather than with the number of states explored. The price is that states are
+		 * re-explored on every iteration and whenever they're reachable by several paths.
+		 * 
+		 * @param initial    the state we start with
+		 * @param goal       the state we're trying to reach
+		 * @param heuristic  the heuristic used to solve the 8-puzzle more efficiently
+		 * @param context    where the explored states and statistics are recorded
+		 * 
+		 * @return the optimal path to solve the puzzle. If no solution exists, null is returned.
+		 */
+		// 1.
+		ArrayList<State> path = new ArrayList<>();
+		path.add(state);
+		int estimate = heuristic.eval(state);
+		int bound = estimate;
+		context.evaluated();
+		
+		while (true) {
+			// 2.
+			int next = this.deepen(path, state2, heuristic, estimate, bound, null, context);
+			
+			// 3.
+			if (next < 0) {
+				return new Path(path);
+			}
+			if (next == Integer.MAX_VALUE) {
+				return null;
+			}
+			bound = next;
+		}
+	}
+	
+	private int deepen(ArrayList<State> path, State goal, Heuristic heuristic, int estimate, int bound, Operator last, SearchContext context) {
+		/**
+		 * Extends the path depth-first until the goal is found or every extension exceeds the bound.
+		 * 
+		 * @param path       the path so far. On success it is left holding the solution.
+		 * @param goal       the state we're trying to reach
+		 * @param heuristic  the heuristic used to estimate the remaining moves
+		 * @param estimate   the heuristic estimate from the terminal state of the path
+		 * @param bound      the largest path length plus estimate that may be explored
+		 * @param last       the operator that produced the terminal state (null at the root)
+		 * @param context    where the explored states and statistics are recorded
+		 * @return -1 if the goal was found, otherwise the smallest estimate that exceeded the bound.
+		 */
+		State terminal = path.get(path.size() - 1);
+		int cost = path.size() - 1;
+		
+		if (cost + estimate > bound) {
+			return cost + estimate;
+		}
+		if (terminal.equals(goal)) {
+			return -1;
+		}
+		
+		context.expanded(path, estimate);
+		int min = Integer.MAX_VALUE;
+		for (Operator o : Operator.values()) {
+			if (last != null && o == last.inverse()) {
+				continue;
+			}
+			State s = terminal.transform(o);
+			if (s == null) {
+				continue;
+			}
+			context.generated(s);
+			
+			path.add(s);
+			context.open(path.size());
+			context.evaluated();
+			int next = this.deepen(path, goal, heuristic, heuristic.evalMove(terminal, estimate, s), bound, o, context);
+			if (next < 0) {
+				return -1;
+			}
+			path.remove(path.size() - 1);
+			min = Math.min(min, next);
+		}
+		return min;
+	}
+	
+	public String getName() {
+		return "IDA* ALGORITHM";
+	}
+}
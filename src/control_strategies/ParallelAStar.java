@@ -0,0 +1,279 @@
+package control_strategies;
+
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import database.BucketQueue;
+import database.Path;
+import database.SearchNode;
+import database.State;
+import heuristics.Heuristic;
+import operators.Operator;
+
+public class ParallelAStar extends ControlStrategy {
+	/**
+	 * Hash Distributed A* (Kishimoto, Fukunaga & Botea, 2009): A* spread over several threads.
+	 * 
+	 * Every state is owned by one worker, chosen by a hash of the state, and only its owner
+	 * keeps its open and closed entries. A worker expands the best node of its own open list
+	 * and sends each child to the child's owner through that owner's inbox, a lock-free
+	 * queue. Since nothing is shared but the inboxes, the workers never wait for each other.
+	 * 
+	 * The workers don't expand nodes in exactly the order A* would, so the first goal found
+	 * isn't necessarily the best one. It becomes the incumbent solution, and the search goes
+	 * on until every node that could still lead to a shorter one (path length plus estimate
+	 * less than the incumbent's length) has been expanded. A state that arrives again with a
+	 * shorter path is expanded again. Each worker uses its own copy of the heuristic (see
+	 * Heuristic.forGoal), so heuristics with caches are never shared between threads.
+	 * 
+	 * The search ends when no node is left anywhere: every node sent or queued is counted in
+	 * one shared counter, which a node leaves only after its children have been counted.
+	 * 
+	 * The statistics of all workers are added together. The allocated bytes only count the
+	 * thread that called exec. Each worker gets an equal share of the node and memory budget,
+	 * and when one worker spends its share, the whole search stops.
+	 */
+	
+	private final int threads;
+	
+	public ParallelAStar() {
+		/**
+		 * Creates a strategy that uses one worker per processor.
+		 */
+		this(Runtime.getRuntime().availableProcessors());
+	}
+	
+	public ParallelAStar(int threads) {
+		/**
+		 * @param threads  the number of workers (the calling thread is one of them)
+		 */
+		if (threads < 1)
+			throw new IllegalArgumentException("A parallel search needs at least one thread");
+		this.threads = threads;
+	}
+	
+	protected Path search(State state, State state2, Heuristic heuristic, SearchContext context) {
+		/**
+		 * Starts the workers, runs one of them on the calling thread and waits for the others.
+		 * 
+		 * @param initial    the state we start with
+		 * @param goal       the state we're trying to reach
+		 * @param heuristic  the heuristic used by the first worker (the others use copies)
+		 * @param context    where the statistics of all workers are added up
+		 * 
+		 * @return the optimal path to solve the puzzle. If no solution exists, null is returned.
+		 */
+		Search search = new Search(state2, this.threads);
+		Worker[] workers = new Worker[this.threads];
+		for (int i=0; i<this.threads; i++) {
+			workers[i] = new Worker(search, i, i == 0 ? heuristic : heuristic.forGoal(state2), context.fork(this.threads));
+		}
+		
+		int estimate = workers[0].heuristic.eval(state);
+		workers[0].context.evaluated();
+		search.outstanding.incrementAndGet();
+		workers[search.owner(state)].inbox.add(new SearchNode(state, estimate));
+		
+		Thread[] helpers = new Thread[this.threads - 1];
+		for (int i=1; i<this.threads; i++) {
+			helpers[i - 1] = new Thread(workers[i], "parallel-a*-" + i);
+			helpers[i - 1].setDaemon(true);
+			helpers[i - 1].start();
+		}
+		workers[0].run();
+		
+		boolean interrupted = false;
+		for (Thread helper : helpers) {
+			while (true) {
+				try {
+					helper.join();
+					break;
+				}
+				catch (InterruptedException e) {
+					interrupted = true;
+					search.failure.compareAndSet(null, new SearchStoppedException(SearchResult.Outcome.CANCELLED));
+				}
+			}
+		}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+		
+		for (Worker worker : workers) {
+			context.merge(worker.context);
+		}
+		if (search.failure.get() instanceof SearchStoppedException)
+			throw (SearchStoppedException)search.failure.get();
+		if (search.failure.get() != null)
+			throw new IllegalStateException("A parallel search worker failed", search.failure.get());
+		
+		SearchNode best = search.incumbent.get();
+		return best == null ? null : best.toPath();
+	}
+	
+	public String getName() {
+		return "PARALLEL A* ALGORITHM";
+	}
+	
+	private static class Search {
+		/**
+		 * What the workers of one search share.
+		 */
+		final State goal;
+		final Worker[] workers;
+		final AtomicInteger outstanding = new AtomicInteger();				// nodes sent or queued but not yet expanded or dropped
+		final AtomicReference<SearchNode> incumbent = new AtomicReference<>();	// the shortest solution so far
+		final AtomicReference<Throwable> failure = new AtomicReference<>();		// set when a worker fails, to stop the others
+		
+		Search(State goal, int threads) {
+			this.goal = goal;
+			this.workers = new Worker[threads];
+		}
+		
+		int owner(State state) {
+			/**
+			 * @return the index of the worker that owns the state.
+			 */
+			long hash = (state.getPacked() * 0x9E3779B97F4A7C15L) >>> 32;
+			return (int)((hash * this.workers.length) >>> 32);
+		}
+		
+		int bound() {
+			/**
+			 * @return the length of the incumbent solution, or the largest int if there is none yet.
+			 */
+			SearchNode best = this.incumbent.get();
+			return best == null ? Integer.MAX_VALUE : best.getCost();
+		}
+		
+		void offer(SearchNode goal) {
+			/**
+			 * Makes the goal node the incumbent if it's shorter than the current one.
+			 */
+			SearchNode best;
+			do {
+				best = this.incumbent.get();
+				if (best != null && best.getCost() <= goal.getCost())
+					return;
+			} while (!this.incumbent.compareAndSet(best, goal));
+		}
+	}
+	
+	private static class Worker implements Runnable {
+		/**
+		 * One worker: its inbox, its open list, and the cheapest known cost of every state it owns.
+		 */
+		final Search search;
+		final int index;
+		final Heuristic heuristic;
+		final SearchContext context;
+		final ConcurrentLinkedQueue<SearchNode> inbox = new ConcurrentLinkedQueue<>();
+		final BucketQueue open = new BucketQueue();
+		final HashMap<State, Integer> bestCosts = new HashMap<>();
+		
+		Worker(Search search, int index, Heuristic heuristic, SearchContext context) {
+			this.search = search;
+			this.index = index;
+			this.heuristic = heuristic;
+			this.context = context;
+			search.workers[index] = this;
+		}
+		
+		@Override
+		public void run() {
+			try {
+				this.context.start();
+				this.work();
+			}
+			catch (RuntimeException | Error e) {
+				this.search.failure.compareAndSet(null, e);
+			}
+		}
+		
+		private void work() {
+			/**
+			 * Alternates between moving the inbox into the open list and expanding the best
+			 * open node, until no node is left anywhere or another worker fails.
+			 */
+			int idle = 0;
+			while (this.search.outstanding.get() > 0 && this.search.failure.get() == null) {
+				for (SearchNode n; (n = this.inbox.poll()) != null; ) {
+					this.receive(n);
+				}
+				
+				SearchNode best = this.open.poll();
+				if (best == null) {
+					// wait for another worker to send something, spinning briefly before sleeping
+					if (++idle < 64)
+						Thread.yield();
+					else
+						LockSupport.parkNanos(50000);
+					continue;
+				}
+				idle = 0;
+				this.expand(best);
+				this.search.outstanding.decrementAndGet();
+			}
+		}
+		
+		private void receive(SearchNode n) {
+			/**
+			 * Queues a node sent to this worker, unless it can't beat the incumbent or its
+			 * state was already reached as cheaply.
+			 */
+			Integer known = this.bestCosts.get(n.getState());
+			if (n.getEstimate() >= this.search.bound() || (known != null && known <= n.getCost())) {
+				this.context.duplicate();
+				this.search.outstanding.decrementAndGet();
+				return;
+			}
+			this.bestCosts.put(n.getState(), n.getCost());
+			this.open.add(n);
+			this.context.open(this.open.size());
+		}
+		
+		private void expand(SearchNode best) {
+			/**
+			 * Expands a node and sends its children to their owners. A goal node becomes the
+			 * incumbent instead. Nodes superseded by a cheaper path or unable to beat the
+			 * incumbent are dropped.
+			 */
+			State terminal = best.getState();
+			if (best.getCost() > this.bestCosts.get(terminal) || best.getEstimate() >= this.search.bound()) {
+				this.context.duplicate();
+				return;
+			}
+			if (terminal.equals(this.search.goal)) {
+				this.search.offer(best);
+				return;
+			}
+			int cost = best.getCost() + 1;
+			int estimate = best.getEstimate() - best.getCost();
+			this.context.expanded(best, estimate);
+			for (Operator o : Operator.values()) {
+				State s = terminal.transform(o);
+				if (s == null || (best.getOperator() != null && o == best.getOperator().inverse()))
+					continue;
+				this.context.generated(s);
+				
+				int bound = this.search.bound();
+				SearchNode child = new SearchNode(s, cost, cost + this.heuristic.evalMove(terminal, estimate, s, bound - cost), best, o);
+				this.context.evaluated();
+				if (child.getEstimate() >= bound) {
+					this.context.duplicate();
+					continue;
+				}
+				
+				// counted before the parent leaves, so the count can't drop to zero in between
+				this.search.outstanding.incrementAndGet();
+				Worker owner = this.search.workers[this.search.owner(s)];
+				if (owner == this)
+					this.receive(child);
+				else
+					owner.inbox.add(child);
+			}
+		}
+	}
+}
@@ -0,0 +1,103 @@
+package control_strategies;
+
+public class SearchBudget {
+	/**
+	 * Limits on the resources a search may use: a deadline, a number of expanded nodes, a
+	 * number of bytes allocated, and a CancellationToken that stops it on request. A search
+	 * that runs out of any of them stops early (see SearchResult.Outcome) instead of running
+	 * until its queue is empty.
+	 * 
+	 * The deadline is fixed when the budget is made, so time spent waiting before the search
+	 * starts counts against it. The memory used is estimated by the bytes allocated by the
+	 * searching thread, which is at least what the search still holds; it isn't limited on
+	 * JVMs that can't measure it.
+	 * 
+	 * Limits are checked as nodes are expanded, every node for the node limit and every few
+	 * hundred nodes for the others, so a search may overrun its deadline or memory slightly.
+	 */
+	
+	public static final SearchBudget UNLIMITED = new SearchBudget(0, 0, 0, null);
+	
+	// The longest timeout whose deadline System.nanoTime() can still be compared against (about 146 years).
+	private static final long MAX_TIMEOUT_MILLIS = Long.MAX_VALUE / 2 / 1000000;
+	
+	private final long deadline;			// the System.nanoTime() to stop at (only if hasDeadline)
+	private final boolean hasDeadline;
+	private final long maxNodes;			// the most nodes to expand (0 for no limit)
+	private final long maxBytes;			// the most bytes to allocate (0 for no limit)
+	private final CancellationToken token;	// null for none
+	
+	public SearchBudget(long timeoutMillis, long maxNodes, long maxBytes, CancellationToken token) {
+		/**
+		 * @param timeoutMillis  how long from now the search may run (0 for no limit, as is
+		 *                       any timeout too long for the clock to reach)
+		 * @param maxNodes       the most nodes the search may expand (0 for no limit)
+		 * @param maxBytes       the most bytes the search may allocate (0 for no limit)
+		 * @param token          stops the search when cancelled (null for none)
+		 */
+		this(timeoutMillis > 0 && timeoutMillis <= MAX_TIMEOUT_MILLIS, System.nanoTime() + Math.min(timeoutMillis, MAX_TIMEOUT_MILLIS) * 1000000,
+				maxNodes, maxBytes, token);
+	}
+	
+	private SearchBudget(boolean hasDeadline, long deadline, long maxNodes, long maxBytes, CancellationToken token) {
+		if (maxNodes < 0 || maxBytes < 0)
+			throw new IllegalArgumentException("The limits of a search budget can't be negative");
+		this.hasDeadline = hasDeadline;
+		this.deadline = deadline;
+		this.maxNodes = maxNodes;
+		this.maxBytes = maxBytes;
+		this.token = token;
+	}
+	
+	public SearchBudget split(int parts) {
+		/**
+		 * Divides the budget between searches that run at the same time as parts of one search
+		 * (e.g. the workers of ParallelAStar). Each part gets the same deadline and token and
+		 * an equal share of the node and memory limits.
+		 * 
+		 * @param parts  the number of parts
+		 * @return the budget of one part.
+		 */
+		return new SearchBudget(this.hasDeadline, this.deadline, SearchBudget.share(this.maxNodes, parts),
+				SearchBudget.share(this.maxBytes, parts), this.token);
+	}
+	
+	public boolean hasDeadline() {
+		/**
+		 * @return whether the search has a deadline.
+		 */
+		return this.hasDeadline;
+	}
+	
+	public long getDeadline() {
+		/**
+		 * @return the System.nanoTime() at which the search must stop (only meaningful if hasDeadline).
+		 */
+		return this.deadline;
+	}
+	
+	public long getMaxNodes() {
+		/**
+		 * @return the most nodes the search may expand, or 0 for no limit.
+		 */
+		return this.maxNodes;
+	}
+	
+	public long getMaxBytes() {
+		/**
+		 * @return the most bytes the search may allocate, or 0 for no limit.
+		 */
+		return this.maxBytes;
+	}
+	
+	public CancellationToken getToken() {
+		/**
+		 * @return the token that stops the search, or null for none.
+		 */
+		return this.token;
+	}
+	
+	private static long share(long limit, int parts) {
+		return limit == 0 ? 0 : Math.max(1, limit / parts);
+	}
+}
@@ -0,0 +1,312 @@
+package control_strategies;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+
+import database.Path;
+import database.SearchNode;
+import database.State;
+import database.StateSet;
+
+public class SearchContext {
+	/**
+	 * Everything a single call to ControlStrategy.exec records about its search: the set of
+	 * states it has explored and its statistics. Each search gets its own context, so searches
+	 * running at the same time on different threads never share mutable state.
+	 * 
+	 * A context is not thread-safe itself and must only be used by the search it was given to.
+	 * 
+	 * Counting the distinct states a search generates means ranking every node and keeping
+	 * a set of them on top of whatever the search itself keeps, which would slow down every
+	 * search and give IDA* a closed set it doesn't otherwise need. So it's only done when the
+	 * context is asked to (see SearchContext(SearchBudget, boolean)), and only on boards small
+	 * enough for a StateSet bitset. Otherwise, every generated node counts as explored.
+	 * 
+	 * A context also enforces the SearchBudget of its search. Every time the search expands
+	 * a node, the budget is checked, and once it's spent a SearchStoppedException ends the
+	 * search. So that a stopped search still has something to show, the context remembers the
+	 * path to the expanded state with the least heuristic estimate (see getPartialPath).
+	 */
+	
+	private static final int CHECK_INTERVAL = 256;		// expansions between checks of the clock, memory and token
+	
+	private final SearchBudget budget;
+	private final boolean tracking;						// whether distinct states are counted
+	private final StateSet explored = new StateSet();	// every distinct state generated so far
+	private boolean distinct;							// whether explored holds every generated state
+	private long generated = 0;							// nodes generated, including repeats
+	private long expanded = 0;							// nodes whose neighbors were generated
+	private long duplicates = 0;							// nodes discarded as already reached as cheaply
+	private int peakOpen = 0;							// the most nodes waiting to be expanded at once
+	private double bound = 1;							// how many times longer than the shortest the solution may be
+	private long evaluations = 0;						// heuristic evaluations
+	private long startNanos;							// when the search started
+	private long startBytes;							// bytes the thread had allocated when the search started
+	private int closestHeuristic = Integer.MAX_VALUE;	// the least estimate of an expanded state
+	private SearchNode closestNode = null;				// the node of that state (or null if closestPath holds it)
+	private Path closestPath = null;					// the path to that state (or null if closestNode holds it)
+	
+	public SearchContext() {
+		/**
+		 * Creates a context for a search with no limits.
+		 */
+		this(SearchBudget.UNLIMITED);
+	}
+	
+	public SearchContext(SearchBudget budget) {
+		/**
+		 * Creates a context that doesn't count distinct states.
+		 * 
+		 * @param budget  the limits the search must keep to
+		 */
+		this(budget, false);
+	}
+	
+	public SearchContext(SearchBudget budget, boolean countDistinct) {
+		/**
+		 * @param budget         the limits the search must keep to
+		 * @param countDistinct  whether to count the distinct states generated (see getNodesExplored)
+		 */
+		this.budget = budget;
+		this.tracking = countDistinct;
+		this.distinct = countDistinct;
+	}
+	
+	public SearchContext fork(int parts) {
+		/**
+		 * Creates a context for one of several parts of this search that run at the same time
+		 * on different threads, with an equal share of the budget (see SearchBudget.split).
+		 * Its statistics should be merged back into this context once the part is done.
+		 * 
+		 * @param parts  the number of parts the search is split into
+		 * @return the context of one part.
+		 */
+		return new SearchContext(this.budget.split(parts), this.tracking);
+	}
+	
+	public void start() {
+		/**
+		 * Records that the search is starting on the current thread.
+		 */
+		this.startNanos = System.nanoTime();
+		this.startBytes = SearchContext.allocatedBytes();
+	}
+	
+	public SearchResult finish(Path path) {
+		/**
+		 * Records that the search has finished on the current thread and adds its statistics
+		 * to the JVM-wide totals (see SearchStatistics).
+		 * 
+		 * @param path  the path found by the search, or null if there is none
+		 * @return the result of the search.
+		 */
+		return this.finish(path == null ? SearchResult.Outcome.UNSOLVABLE : SearchResult.Outcome.SOLVED, path);
+	}
+	
+	public SearchResult stop(SearchResult.Outcome outcome) {
+		/**
+		 * Records that the search was stopped before it finished, and adds its statistics to
+		 * the JVM-wide totals.
+		 * 
+		 * @param outcome  why the search stopped
+		 * @return the result of the search, with the partial path closest to the goal.
+		 */
+		return this.finish(outcome, null);
+	}
+	
+	private SearchResult finish(SearchResult.Outcome outcome, Path path) {
+		long wallNanos = System.nanoTime() - this.startNanos;
+		long allocated = this.startBytes < 0 ? -1 : SearchContext.allocatedBytes() - this.startBytes;
+		Path partial = outcome.isStopped() ? this.getPartialPath() : null;
+		SearchResult result = new SearchResult(outcome, path, partial, path == null ? 1 : this.bound, this.expanded, this.generated,
+				this.getNodesExplored(), this.duplicates, this.peakOpen, this.evaluations, wallNanos, allocated);
+		SearchStatistics.global().record(result);
+		return result;
+	}
+	
+	public void generated(State state) {
+		/**
+		 * Records that the search generated a node for the state.
+		 * 
+		 * @param state  the state of the new node
+		 */
+		this.generated++;
+		if (this.distinct) {
+			if (StateSet.isCompact(state.getCells()))
+				this.explored.add(state);
+			else
+				this.distinct = false;
+		}
+	}
+	
+	public void expanded(State state) {
+		/**
+		 * Records that the search is about to generate the neighbors of the state.
+		 * 
+		 * @param state  the state being expanded
+		 * @throws SearchStoppedException if the search has spent its budget or was cancelled.
+		 */
+		this.expanded++;
+		if (this.budget != SearchBudget.UNLIMITED)
+			this.checkBudget();
+	}
+	
+	public void expanded(SearchNode node, int heuristic) {
+		/**
+		 * Records that the search is about to generate the neighbors of the node's state, and
+		 * remembers the node if its state is the closest to the goal so far.
+		 * 
+		 * @param node       the node being expanded
+		 * @param heuristic  the heuristic estimate from the node's state
+		 * @throws SearchStoppedException if the search has spent its budget or was cancelled.
+		 */
+		if (heuristic < this.closestHeuristic) {
+			this.closestHeuristic = heuristic;
+			this.closestNode = node;
+			this.closestPath = null;
+		}
+		this.expanded(node.getState());
+	}
+	
+	public void expanded(ArrayList<State> path, int heuristic) {
+		/**
+		 * Records that the search is about to generate the neighbors of the last state of the
+		 * path, and remembers the path if that state is the closest to the goal so far. This
+		 * is for searches that keep their path as a list of states (e.g. IDA*).
+		 * 
+		 * @param path       the path to the state being expanded (copied if it's remembered)
+		 * @param heuristic  the heuristic estimate from the last state of the path
+		 * @throws SearchStoppedException if the search has spent its budget or was cancelled.
+		 */
+		if (heuristic < this.closestHeuristic) {
+			this.closestHeuristic = heuristic;
+			this.closestNode = null;
+			this.closestPath = new Path(new ArrayList<>(path));
+		}
+		this.expanded(path.get(path.size() - 1));
+	}
+	
+	public void checkBudget() {
+		/**
+		 * Stops the search if it has spent its budget or was cancelled. The node limit is
+		 * checked every time, the rest only every CHECK_INTERVAL expansions since they cost
+		 * more to read. An interrupted thread counts as cancelled.
+		 * 
+		 * @throws SearchStoppedException if the search must stop.
+		 */
+		if (this.budget.getMaxNodes() > 0 && this.expanded > this.budget.getMaxNodes())
+			throw new SearchStoppedException(SearchResult.Outcome.NODE_LIMIT_EXCEEDED);
+		if (this.expanded % CHECK_INTERVAL != 0)
+			return;
+		
+		CancellationToken token = this.budget.getToken();
+		if ((token != null && token.isCancelled()) || Thread.currentThread().isInterrupted())
+			throw new SearchStoppedException(SearchResult.Outcome.CANCELLED);
+		if (this.budget.hasDeadline() && System.nanoTime() - this.budget.getDeadline() >= 0)
+			throw new SearchStoppedException(SearchResult.Outcome.DEADLINE_EXCEEDED);
+		if (this.budget.getMaxBytes() > 0 && this.startBytes >= 0
+				&& SearchContext.allocatedBytes() - this.startBytes > this.budget.getMaxBytes())
+			throw new SearchStoppedException(SearchResult.Outcome.MEMORY_LIMIT_EXCEEDED);
+	}
+	
+	public void duplicate() {
+		/**
+		 * Records that the search discarded a node because its state was already reached at least as cheaply.
+		 */
+		this.duplicates++;
+	}
+	
+	public void open(int size) {
+		/**
+		 * Records how many nodes are waiting to be expanded.
+		 * 
+		 * @param size  the number of nodes in the open list (or on the stack, for depth-first searches)
+		 */
+		this.peakOpen = Math.max(this.peakOpen, size);
+	}
+	
+	public void bounded(double bound) {
+		/**
+		 * Records that the solution the search returns may be longer than the shortest one,
+		 * for searches that trade optimality for speed (e.g. WeightedAStar). Without it, the
+		 * solution is taken to be optimal.
+		 * 
+		 * @param bound  how many times longer than the shortest solution it may be (at least 1)
+		 */
+		this.bound = bound;
+	}
+	
+	public void evaluated() {
+		/**
+		 * Records that the search asked the heuristic for an estimate.
+		 */
+		this.evaluations++;
+	}
+	
+	public void merge(SearchContext other) {
+		/**
+		 * Adds the statistics of another context to this one, for searches that split their
+		 * work between several contexts (one per thread). The peak open list sizes are added
+		 * up, since the other search's open list existed at the same time as this one's.
+		 * 
+		 * @param other  a context whose search has finished
+		 */
+		this.distinct &= other.distinct;
+		if (this.distinct)
+			this.explored.addAll(other.explored);
+		this.generated += other.generated;
+		this.expanded += other.expanded;
+		this.duplicates += other.duplicates;
+		this.peakOpen += other.peakOpen;
+		this.evaluations += other.evaluations;
+		if (other.closestHeuristic < this.closestHeuristic) {
+			this.closestHeuristic = other.closestHeuristic;
+			this.closestNode = other.closestNode;
+			this.closestPath = other.closestPath;
+		}
+	}
+	
+	public Path getPartialPath() {
+		/**
+		 * @return the path to the expanded state with the least heuristic estimate so far, or
+		 *         null if no state was expanded with an estimate.
+		 */
+		return this.closestNode != null ? this.closestNode.toPath() : this.closestPath;
+	}
+	
+	public long getNodesExplored() {
+		/**
+		 * @return the number of distinct states generated by the search, if they're counted
+		 *         (see SearchContext(SearchBudget, boolean)). Otherwise, all nodes generated.
+		 */
+		return this.distinct ? this.explored.size() : this.generated;
+	}
+	
+	public long getNodesGenerated() {
+		/**
+		 * @return the number of nodes generated by the search, counting states reached more than once.
+		 */
+		return this.generated;
+	}
+	
+	public long getNodesExpanded() {
+		/**
+		 * @return the number of nodes the search expanded.
+		 */
+		return this.expanded;
+	}
+	
+	private static long allocatedBytes() {
+		/**
+		 * @return the bytes allocated by the current thread so far, or -1 if the JVM can't measure it.
+		 */
+		java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (threads instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean sun = (com.sun.management.ThreadMXBean) threads;
+			if (sun.isThreadAllocatedMemorySupported() && sun.isThreadAllocatedMemoryEnabled()) {
+				return sun.getThreadAllocatedBytes(Thread.currentThread().getId());
+			}
+		}
+		return -1;
+	}
+}
@@ -0,0 +1,176 @@
+package control_strategies;
+
+import database.Path;
+
+public class SearchResult {
+	/**
+	 * What a call to ControlStrategy.exec found and what it cost: how the search ended, the
+	 * path (null if there is no solution) along with the statistics of the search. Results
+	 * never change once built.
+	 * 
+	 * A search stopped by its SearchBudget has no path, but it has the statistics of the work
+	 * done so far and a partial path: the path to the expanded state that the heuristic
+	 * estimated closest to the goal.
+	 */
+	
+	public enum Outcome {
+		SOLVED,					// a path was found
+		UNSOLVABLE,				// the goal can't be reached
+		DEADLINE_EXCEEDED,		// the search ran out of time
+		NODE_LIMIT_EXCEEDED,	// the search expanded as many nodes as it was allowed
+		MEMORY_LIMIT_EXCEEDED,	// the search allocated as much memory as it was allowed
+		CANCELLED;				// the search's cancellation token was cancelled or its thread interrupted
+		
+		public boolean isStopped() {
+			/**
+			 * @return whether the search stopped before it could tell whether there is a solution.
+			 */
+			return this != SOLVED && this != UNSOLVABLE;
+		}
+	}
+	
+	private final Outcome outcome;
+	private final Path path;				// the solution, or null if there is none
+	private final Path partial;				// the path closest to the goal, if the search was stopped
+	private final double bound;				// how many times longer than the shortest the solution may be
+	private final long expanded;				// nodes whose neighbors were generated
+	private final long generated;			// nodes generated, including repeats
+	private final long explored;				// distinct states generated (or all nodes, if not counted)
+	private final long duplicates;			// nodes discarded because their state was already reached as cheaply
+	private final int peakOpen;				// the most nodes waiting to be expanded at once
+	private final long evaluations;			// heuristic evaluations
+	private final long wallNanos;			// elapsed time of the search
+	private final long allocatedBytes;		// bytes allocated by the searching thread, or -1 if unknown
+	
+	public SearchResult(Path path, long expanded, long generated, long explored, long duplicates,
+			int peakOpen, long evaluations, long wallNanos, long allocatedBytes) {
+		this(path == null ? Outcome.UNSOLVABLE : Outcome.SOLVED, path, null, expanded, generated, explored,
+				duplicates, peakOpen, evaluations, wallNanos, allocatedBytes);
+	}
+	
+	public SearchResult(Outcome outcome, Path path, Path partial, long expanded, long generated, long explored,
+			long duplicates, int peakOpen, long evaluations, long wallNanos, long allocatedBytes) {
+		this(outcome, path, partial, 1, expanded, generated, explored, duplicates, peakOpen, evaluations, wallNanos, allocatedBytes);
+	}
+	
+	public SearchResult(Outcome outcome, Path path, Path partial, double bound, long expanded, long generated, long explored,
+			long duplicates, int peakOpen, long evaluations, long wallNanos, long allocatedBytes) {
+		this.outcome = outcome;
+		this.path = path;
+		this.partial = partial;
+		this.bound = bound;
+		this.expanded = expanded;
+		this.generated = generated;
+		this.explored = explored;
+		this.duplicates = duplicates;
+		this.peakOpen = peakOpen;
+		this.evaluations = evaluations;
+		this.wallNanos = wallNanos;
+		this.allocatedBytes = allocatedBytes;
+	}
+	
+	public Outcome getOutcome() {
+		/**
+		 * @return how the search ended.
+		 */
+		return this.outcome;
+	}
+	
+	public Path getPath() {
+		/**
+		 * @return the path found by the search, or null if the puzzle has no solution.
+		 */
+		return this.path;
+	}
+	
+	public boolean isSolved() {
+		/**
+		 * @return whether the search found a path.
+		 */
+		return this.path != null;
+	}
+	
+	public Path getPartialPath() {
+		/**
+		 * @return for a search that was stopped, the path to the expanded state estimated closest
+		 *         to the goal (null if it stopped before expanding any). Otherwise null.
+		 */
+		return this.partial;
+	}
+	
+	public double getBound() {
+		/**
+		 * @return how many times longer than the shortest solution the path may be: 1 if it's
+		 *         known to be optimal (or there is no path), more for searches like WeightedAStar.
+		 */
+		return this.bound;
+	}
+	
+	public long getNodesExpanded() {
+		/**
+		 * @return the number of nodes the search expanded.
+		 */
+		return this.expanded;
+	}
+	
+	public long getNodesGenerated() {
+		/**
+		 * @return the number of nodes generated by the search, counting states reached more than once.
+		 */
+		return this.generated;
+	}
+	
+	public long getNodesExplored() {
+		/**
+		 * @return the number of distinct states generated by the search, or the number of
+		 *         nodes generated if its context didn't count distinct states.
+		 */
+		return this.explored;
+	}
+	
+	public long getDuplicatesPruned() {
+		/**
+		 * @return the number of nodes discarded because their state had already been reached at least as cheaply.
+		 */
+		return this.duplicates;
+	}
+	
+	public int getPeakOpen() {
+		/**
+		 * @return the largest number of nodes waiting to be expanded at any one time.
+		 */
+		return this.peakOpen;
+	}
+	
+	public long getHeuristicEvaluations() {
+		/**
+		 * @return the number of times the search asked the heuristic for an estimate.
+		 */
+		return this.evaluations;
+	}
+	
+	public long getWallNanos() {
+		/**
+		 * @return how long the search took, in nanoseconds.
+		 */
+		return this.wallNanos;
+	}
+	
+	public long getAllocatedBytes() {
+		/**
+		 * An estimate of the memory the search used: the bytes allocated by the thread that
+		 * ran it. Work done on other threads isn't counted.
+		 * 
+		 * @return the number of bytes allocated, or -1 if the JVM can't measure it.
+		 */
+		return this.allocatedBytes;
+	}
+	
+	public String toString() {
+		return String.format("%s: %d moves, %d expanded, %d generated, %d explored, %d duplicates, "
+				+ "%d peak open, %d evaluations, %.3f ms, %d bytes",
+				this.outcome.toString().toLowerCase(), this.isSolved() ? this.path.length() : -1,
+				this.expanded, this.generated, this.explored, this.duplicates,
+				this.peakOpen, this.evaluations, this.wallNanos / 1e6, this.allocatedBytes);
+	}
+}
@@ -0,0 +1,132 @@
+package control_strategies;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+public class SearchStatistics implements SearchStatisticsMXBean {
+	/**
+	 * Totals of the statistics of every search run in this JVM, so long-running workers can
+	 * be monitored over JMX without attaching a profiler. Every SearchResult built by
+	 * ControlStrategy.exec is added to the global instance, which is registered with the
+	 * platform MBean server as "puzzle:type=SearchStatistics".
+	 * 
+	 * The counters are striped (LongAdder), so searches on many threads can record their
+	 * results without contending with each other.
+	 */
+	
+	public static final String OBJECT_NAME = "puzzle:type=SearchStatistics";
+	
+	private static SearchStatistics global;	// registered the first time it's needed
+	
+	private final LongAdder searches = new LongAdder();
+	private final LongAdder solved = new LongAdder();
+	private final LongAdder stopped = new LongAdder();
+	private final LongAdder expanded = new LongAdder();
+	private final LongAdder generated = new LongAdder();
+	private final LongAdder duplicates = new LongAdder();
+	private final LongAdder evaluations = new LongAdder();
+	private final LongAccumulator peakOpen = new LongAccumulator(Math::max, 0);
+	private final LongAdder wallNanos = new LongAdder();
+	private final LongAdder allocatedBytes = new LongAdder();
+	
+	public static synchronized SearchStatistics global() {
+		/**
+		 * @return the statistics of every search in this JVM, registering them with JMX on first use.
+		 */
+		if (global == null) {
+			SearchStatistics statistics = new SearchStatistics();
+			try {
+				ManagementFactory.getPlatformMBeanServer().registerMBean(statistics, new ObjectName(OBJECT_NAME));
+			}
+			catch (JMException e) {
+				throw new IllegalStateException("Could not register " + OBJECT_NAME, e);
+			}
+			global = statistics;
+		}
+		return global;
+	}
+	
+	public void record(SearchResult result) {
+		/**
+		 * Adds the statistics of a finished search to the totals.
+		 * 
+		 * @param result  the finished search
+		 */
+		this.searches.increment();
+		if (result.isSolved()) {
+			this.solved.increment();
+		}
+		if (result.getOutcome().isStopped()) {
+			this.stopped.increment();
+		}
+		this.expanded.add(result.getNodesExpanded());
+		this.generated.add(result.getNodesGenerated());
+		this.duplicates.add(result.getDuplicatesPruned());
+		this.evaluations.add(result.getHeuristicEvaluations());
+		this.peakOpen.accumulate(result.getPeakOpen());
+		this.wallNanos.add(result.getWallNanos());
+		if (result.getAllocatedBytes() > 0) {
+			this.allocatedBytes.add(result.getAllocatedBytes());
+		}
+	}
+	
+	public long getSearches() {
+		return this.searches.sum();
+	}
+	
+	public long getSolved() {
+		return this.solved.sum();
+	}
+	
+	public long getStopped() {
+		return this.stopped.sum();
+	}
+	
+	public long getNodesExpanded() {
+		return this.expanded.sum();
+	}
+	
+	public long getNodesGenerated() {
+		return this.generated.sum();
+	}
+	
+	public long getDuplicatesPruned() {
+		return this.duplicates.sum();
+	}
+	
+	public long getHeuristicEvaluations() {
+		return this.evaluations.sum();
+	}
+	
+	public long getMaxPeakOpen() {
+		return this.peakOpen.get();
+	}
+	
+	public long getWallNanos() {
+		return this.wallNanos.sum();
+	}
+	
+	public long getAllocatedBytes() {
+		return this.allocatedBytes.sum();
+	}
+	
+	public void reset() {
+		/**
+		 * Sets every total back to zero. Searches that finish while resetting may be partly counted.
+		 */
+		this.searches.reset();
+		this.solved.reset();
+		this.stopped.reset();
+		this.expanded.reset();
+		this.generated.reset();
+		this.duplicates.reset();
+		this.evaluations.reset();
+		this.peakOpen.reset();
+		this.wallNanos.reset();
+		this.allocatedBytes.reset();
+	}
+}
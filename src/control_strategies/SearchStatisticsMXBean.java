@@ -0,0 +1,19 @@
+package control_strategies;
+
+public interface SearchStatisticsMXBean {
+	/**
+	 * The cumulative search statistics of this JVM, as seen through JMX (e.g. in JConsole
+	 * under puzzle:type=SearchStatistics). See SearchStatistics.
+	 */
+	public long getSearches();
+	public long getSolved();
+	public long getStopped();
+	public long getNodesExpanded();
+	public long getNodesGenerated();
+	public long getDuplicatesPruned();
+	public long getHeuristicEvaluations();
+	public long getMaxPeakOpen();
+	public long getWallNanos();
+	public long getAllocatedBytes();
+	public void reset();
+}
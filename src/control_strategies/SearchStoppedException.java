@@ -0,0 +1,29 @@
+package control_strategies;
+
+public class SearchStoppedException extends RuntimeException {
+	/**
+	 * Thrown by SearchContext when a search runs out of its budget or is cancelled. It
+	 * unwinds the search (however deeply it's nested) back to ControlStrategy.exec, which
+	 * turns it into a result with the outcome and the statistics so far. No stack trace is
+	 * filled in, since the exception is part of normal operation.
+	 */
+	
+	private static final long serialVersionUID = 1L;
+	
+	private final SearchResult.Outcome outcome;
+	
+	public SearchStoppedException(SearchResult.Outcome outcome) {
+		/**
+		 * @param outcome  why the search stopped
+		 */
+		super(outcome.toString(), null, false, false);
+		this.outcome = outcome;
+	}
+	
+	public SearchResult.Outcome getOutcome() {
+		/**
+		 * @return why the search stopped.
+		 */
+		return this.outcome;
+	}
+}
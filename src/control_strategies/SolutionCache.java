@@ -0,0 +1,215 @@
+package control_strategies;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import database.Path;
+import database.State;
+import operators.Operator;
+
+public class SolutionCache {
+	/**
+	 * Remembers the solutions of puzzles that were already solved, so that a puzzle asked
+	 * for again is answered without a search.
+	 * 
+	 * Renaming the tiles doesn't change which moves solve a puzzle, so every (initial, goal)
+	 * pair is relabeled so that its goal becomes the canonical goal with the same blank cell
+	 * (see State.relabel). The pair is then identified by the board width, the goal's blank
+	 * and the rank of the relabeled initial state, which all fit in one long. Pairs that only
+	 * differ by their tile names share an entry.
+	 * 
+	 * A solution is stored as its moves, two bits each (the Operator ordinal), so an 8-puzzle
+	 * solution takes a single long. When the cache is full, the least recently used entry is
+	 * dropped. A cache can be saved to a file and loaded again by a later process.
+	 * 
+	 * Entries are returned for any strategy, so a cache should only be shared by solvers
+	 * whose strategies find optimal solutions. All methods are thread-safe.
+	 */
+	
+	private static final int MAGIC = 0x534F4C31;	// "SOL1"
+	
+	private final int capacity;
+	private final File file;						// where the cache is saved (null for memory only)
+	private final LinkedHashMap<Long, long[]> entries;	// key -> { number of moves, packed moves... }
+	private long hits = 0;
+	private long misses = 0;
+	
+	public SolutionCache(int capacity) {
+		/**
+		 * Creates an empty cache that is only kept in memory.
+		 * 
+		 * @param capacity  the most solutions to keep
+		 */
+		this(capacity, null);
+	}
+	
+	public SolutionCache(int capacity, File file) {
+		/**
+		 * Creates a cache that is saved to a file, starting with the solutions saved there
+		 * before if the file exists.
+		 * 
+		 * @param capacity  the most solutions to keep
+		 * @param file      where the cache is loaded from and saved to (null for memory only)
+		 */
+		if (capacity < 1)
+			throw new IllegalArgumentException("The capacity of a solution cache must be positive");
+		this.capacity = capacity;
+		this.file = file;
+		this.entries = new LinkedHashMap<Long, long[]>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, long[]> eldest) {
+				return this.size() > SolutionCache.this.capacity;
+			}
+		};
+		
+		if (file != null && file.exists()) {
+			try {
+				this.load(file);
+			}
+			catch (IOException e) {
+				throw new IllegalArgumentException("Could not load the solution cache " + file, e);
+			}
+		}
+	}
+	
+	public Path get(State initial, State goal) {
+		/**
+		 * @param initial  the state to start from
+		 * @param goal     the state to reach
+		 * @return the cached solution of the puzzle, or null if it isn't cached.
+		 */
+		long key = SolutionCache.key(initial, goal);
+		long[] moves;
+		synchronized (this) {
+			moves = this.entries.get(key);
+			if (moves == null) {
+				this.misses++;
+				return null;
+			}
+			this.hits++;
+		}
+		
+		ArrayList<State> states = new ArrayList<>((int)moves[0] + 1);
+		State state = initial;
+		states.add(state);
+		for (int i=0; i<moves[0]; i++) {
+			int ordinal = (int)(moves[1 + i/32] >>> (2 * (i%32))) & 3;
+			state = state.transform(Operator.values()[ordinal]);
+			states.add(state);
+		}
+		return new Path(states);
+	}
+	
+	public void put(State initial, State goal, Path path) {
+		/**
+		 * Caches the solution of a puzzle.
+		 * 
+		 * @param initial  the state the path starts from
+		 * @param goal     the state the path reaches
+		 * @param path     the solution (nothing is cached for null)
+		 */
+		if (path == null)
+			return;
+		
+		ArrayList<Operator> operators = path.getOperators();
+		long[] moves = new long[1 + (operators.size() + 31) / 32];
+		moves[0] = operators.size();
+		for (int i=0; i<operators.size(); i++) {
+			moves[1 + i/32] |= (long)operators.get(i).ordinal() << (2 * (i%32));
+		}
+		
+		long key = SolutionCache.key(initial, goal);
+		synchronized (this) {
+			this.entries.put(key, moves);
+		}
+	}
+	
+	public synchronized int size() {
+		/**
+		 * @return the number of cached solutions.
+		 */
+		return this.entries.size();
+	}
+	
+	public synchronized long getHits() {
+		/**
+		 * @return the number of lookups that found a solution.
+		 */
+		return this.hits;
+	}
+	
+	public synchronized long getMisses() {
+		/**
+		 * @return the number of lookups that didn't find a solution.
+		 */
+		return this.misses;
+	}
+	
+	public void save() throws IOException {
+		/**
+		 * Writes the cache to its file, least recently used first, so that loading it keeps
+		 * the order. The file is written under a temporary name and moved into place, so
+		 * another process never loads a partly written cache.
+		 */
+		if (this.file == null)
+			return;
+		
+		File directory = this.file.getAbsoluteFile().getParentFile();
+		directory.mkdirs();
+		File tmp = File.createTempFile(this.file.getName(), ".tmp", directory);
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+			synchronized (this) {
+				out.writeInt(MAGIC);
+				out.writeInt(this.entries.size());
+				for (Map.Entry<Long, long[]> entry : this.entries.entrySet()) {
+					out.writeLong(entry.getKey());
+					out.writeShort(entry.getValue().length);
+					for (long word : entry.getValue())
+						out.writeLong(word);
+				}
+			}
+		}
+		Files.move(tmp.toPath(), this.file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+	
+	private void load(File file) throws IOException {
+		/**
+		 * Adds the solutions saved in a file, keeping the most recently used ones if there
+		 * are more than fit.
+		 */
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if (in.readInt() != MAGIC)
+				throw new IOException(file + " is not a solution cache");
+			int count = in.readInt();
+			for (int i=0; i<count; i++) {
+				long key = in.readLong();
+				long[] moves = new long[in.readShort()];
+				for (int j=0; j<moves.length; j++)
+					moves[j] = in.readLong();
+				this.entries.put(key, moves);
+			}
+		}
+	}
+	
+	private static long key(State initial, State goal) {
+		/**
+		 * @return the rank of the initial state relabeled for the goal, followed by 4 bits for
+		 *         the goal's blank and 3 bits for the board width.
+		 */
+		long rank = initial.relabel(goal).rank();
+		return rank << 7 | goal.getBlank() << 3 | goal.getWidth();
+	}
+}
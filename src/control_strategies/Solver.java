@@ -0,0 +1,111 @@
+package control_strategies;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+import database.Path;
+import database.State;
+import heuristics.Heuristic;
+
+public class Solver {
+	/**
+	 * A thread-safe entry point for solving puzzles. A Solver pairs a control strategy with a
+	 * way of building heuristics; every solve builds its own heuristic for the goal and gets
+	 * its own SearchContext, so one Solver can be shared by any number of threads.
+	 * 
+	 * Control strategies keep no state between calls, and the tables shared by heuristics
+	 * (pattern databases, distance tables) are read-only once built.
+	 * 
+	 * A Solver can be given a SolutionCache, which is checked before every search and
+	 * remembers every solution found by an optimal control strategy (see ControlStrategy.isOptimal).
+	 */
+	
+	private final ControlStrategy strategy;
+	private final Function<State, Heuristic> heuristics;
+	private final SolutionCache cache;		// null for none
+	
+	public Solver(ControlStrategy strategy, Function<State, Heuristic> heuristics) {
+		/**
+		 * @param strategy    the control strategy used for every solve
+		 * @param heuristics  builds the heuristic for a goal state (e.g. ManhattanDistance::new)
+		 */
+		this(strategy, heuristics, null);
+	}
+	
+	public Solver(ControlStrategy strategy, Function<State, Heuristic> heuristics, SolutionCache cache) {
+		/**
+		 * @param strategy    the control strategy used for every solve
+		 * @param heuristics  builds the heuristic for a goal state (e.g. ManhattanDistance::new)
+		 * @param cache       where solutions are looked up and remembered (null for none)
+		 */
+		this.strategy = strategy;
+		this.heuristics = heuristics;
+		this.cache = cache;
+	}
+	
+	public ControlStrategy getControlStrategy() {
+		/**
+		 * @return the control strategy used for every solve.
+		 */
+		return this.strategy;
+	}
+	
+	public SearchResult solve(State initial, State goal) {
+		/**
+		 * Solves a puzzle on the calling thread.
+		 * 
+		 * @return the path found by the control strategy (null if the puzzle has no solution) and its statistics.
+		 */
+		return this.solve(initial, goal, new SearchContext());
+	}
+	
+	public SearchResult solve(State initial, State goal, SearchBudget budget) {
+		/**
+		 * Solves a puzzle on the calling thread, stopping early if the search spends its budget.
+		 * 
+		 * @return the path found by the control strategy (null if the puzzle has no solution or
+		 *         the search was stopped) and its statistics.
+		 */
+		return this.solve(initial, goal, new SearchContext(budget));
+	}
+	
+	public SearchResult solve(State initial, State goal, SearchContext context) {
+		/**
+		 * Solves a puzzle on the calling thread, recording the search in the given context.
+		 * 
+		 * @return the path found by the control strategy (null if the puzzle has no solution) and its statistics.
+		 */
+		if (this.cache == null || !initial.canReach(goal)) {
+			return this.strategy.exec(initial, goal, this.heuristics.apply(goal), context);
+		}
+		
+		Path path = this.cache.get(initial, goal);
+		if (path != null) {
+			// answered without a search, so the result only has the time of the lookup
+			context.start();
+			return context.finish(path);
+		}
+		SearchResult result = this.strategy.exec(initial, goal, this.heuristics.apply(goal), context);
+		if (this.strategy.isOptimal())
+			this.cache.put(initial, goal, result.getPath());
+		return result;
+	}
+	
+	public Future<SearchResult> submit(ExecutorService executor, final State initial, final State goal, final SearchContext context) {
+		/**
+		 * Solves a puzzle on one of the executor's threads.
+		 * 
+		 * @param executor  the threads to solve on
+		 * @param context   where the search is recorded. It must not be shared with another solve.
+		 * @return the pending result.
+		 */
+		return executor.submit(new Callable<SearchResult>() {
+			@Override
+			public SearchResult call() {
+				return Solver.this.solve(initial, goal, context);
+			}
+		});
+	}
+}
@@ -0,0 +1,58 @@
+package control_strategies;
+
+import java.io.File;
+
+import database.DistanceTable;
+import database.Path;
+import database.State;
+import heuristics.Heuristic;
+
+public class TableLookup extends ControlStrategy{
+	
+	private final File directory;	// where the distance tables are kept (null for memory only)
+	
+	public TableLookup() {
+		/**
+		 * Creates a strategy that builds the distance tables in memory the first time they're needed.
+		 */
+		this(null);
+	}
+	
+	public TableLookup(File directory) {
+		/**
+		 * Creates a strategy that maps the distance tables from a directory, building and
+		 * writing any that are missing.
+		 * 
+		 * @param directory  where the distance tables are kept
+		 */
+		this.directory = directory;
+	}
+	
+	protected Path search(State state, State state2, Heuristic heuristic, SearchContext context) {
+		/**
+		 * Solves the puzzle without searching by descending through the exhaustive distance
+		 * table of the goal's blank cell (see DistanceTable). The heuristic isn't needed.
+		 * Only the 8-puzzle has distance tables.
+		 * 
+		 * @param initial    the state we start with
+		 * @param goal       the state we're trying to reach
+		 * @param heuristic  ignored
+		 * @param context    where the states on the path are recorded
+		 * 
+		 * @return the optimal path to solve the puzzle. If no solution exists, null is returned.
+		 */
+		if (state2.getWidth() != State.WIDTH) {
+			throw new IllegalArgumentException("Distance tables only exist for the " + State.WIDTH + "x" + State.WIDTH + " puzzle.");
+		}
+		
+		Path path = DistanceTable.forBlank(state2.getBlank(), this.directory).solve(state, state2);
+		for (int i=0; path != null && i<=path.length(); i++) {
+			context.generated(path.getStateAt(i));
+		}
+		return path;
+	}
+	
+	public String getName() {
+		return "DISTANCE TABLE LOOKUP";
+	}
+}
@@ -0,0 +1,230 @@
+package control_strategies;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import database.BucketQueue;
+import database.Path;
+import database.SearchNode;
+import database.State;
+import database.StateSet;
+import heuristics.Heuristic;
+import operators.Operator;
+
+public class WeightedAStar extends ControlStrategy {
+	/**
+	 * Weighted A*: A* ordered by path length + weight * heuristic estimate instead of
+	 * path length + estimate. A weight above 1 makes the search greedier, so it usually
+	 * expands far fewer nodes, at the price of a solution that may be longer than the
+	 * shortest one. With an admissible heuristic, it's never more than weight times longer.
+	 * 
+	 * Estimates are kept integers for the BucketQueue by rounding weight * estimate down,
+	 * which never makes a node look further from the goal, so the bound still holds. Like
+	 * A*, a state is expanded at most once.
+	 */
+	
+	private final double weight;
+	
+	public WeightedAStar() {
+		/**
+		 * Creates a search that finds solutions at most twice as long as the shortest ones.
+		 */
+		this(2);
+	}
+	
+	public WeightedAStar(double weight) {
+		/**
+		 * @param weight  what the heuristic estimate is multiplied by (at least 1, where the search is plain A*)
+		 */
+		if (!(weight >= 1))
+			throw new IllegalArgumentException("The weight of a weighted search must be at least 1, not " + weight);
+		this.weight = weight;
+	}
+	
+	protected Path search(State state, State state2, Heuristic heuristic, SearchContext context) {
+		/**
+		 * @param initial    the state we start with
+		 * @param goal       the state we're trying to reach
+		 * @param heuristic  the heuristic used to solve the 8-puzzle more efficiently
+		 * @param context    where the explored states and statistics are recorded
+		 * 
+		 * @return a path at most weight times longer than the optimal one. If no solution exists, null is returned.
+		 */
+		Search search = new Search(state, state2, heuristic, context, this.weight);
+		search.improve(Long.MAX_VALUE);
+		context.bounded(this.weight);
+		return search.getSolution();
+	}
+	
+	public double getWeight() {
+		/**
+		 * @return what the heuristic estimate is multiplied by.
+		 */
+		return this.weight;
+	}
+	
+	@Override
+	public boolean isOptimal() {
+		return this.weight == 1;
+	}
+	
+	public String getName() {
+		return String.format("WEIGHTED A* ALGORITHM (WEIGHT %s)", this.weight);
+	}
+	
+	protected static class Node extends SearchNode {
+		/**
+		 * A search node that also remembers the unweighted heuristic estimate of its state,
+		 * so that its children can be evaluated incrementally and the node can be queued
+		 * again under another weight.
+		 */
+		final int heuristic;
+		
+		Node(State state, int cost, int estimate, SearchNode parent, Operator operator, int heuristic) {
+			super(state, cost, estimate, parent, operator);
+			this.heuristic = heuristic;
+		}
+	}
+	
+	protected static class Search {
+		/**
+		 * One weighted search, which can be resumed with a smaller weight to improve its
+		 * solution (see AnytimeAStar). A state is expanded at most once per weight. When a
+		 * cheaper path reaches a state that was already expanded under the current weight,
+		 * the node is set aside and only queued once the weight changes.
+		 */
+		private final State goal;
+		private final Heuristic heuristic;
+		private final SearchContext context;
+		private double weight;
+		private BucketQueue open = new BucketQueue();
+		private final HashMap<State, Integer> bestCosts = new HashMap<>();	// the cheapest known cost of every reached state
+		private StateSet closed = new StateSet();							// states expanded under the current weight
+		private final ArrayList<Node> inconsistent = new ArrayList<>();		// cheaper paths to closed states
+		private Node solution = null;										// the best goal node so far
+		
+		Search(State initial, State goal, Heuristic heuristic, SearchContext context, double weight) {
+			this.goal = goal;
+			this.heuristic = heuristic;
+			this.context = context;
+			this.weight = weight;
+			
+			int estimate = heuristic.eval(initial);
+			context.evaluated();
+			this.bestCosts.put(initial, 0);
+			this.open.add(new Node(initial, 0, this.weigh(estimate), null, null, estimate));
+			context.open(this.open.size());
+		}
+		
+		boolean improve(long deadline) {
+			/**
+			 * Expands nodes until none left can lead to a shorter solution under the current
+			 * weight, i.e. until a goal node is first in the queue.
+			 * 
+			 * @param deadline  the System.nanoTime() after which to give up, or Long.MAX_VALUE for none
+			 * @return false if the deadline passed first.
+			 */
+			int bound = this.solution == null ? Integer.MAX_VALUE : this.solution.getCost();
+			while (!this.open.isEmpty()) {
+				if (deadline != Long.MAX_VALUE && (this.context.getNodesExpanded() & 1023) == 0
+						&& System.nanoTime() - deadline >= 0)
+					return false;
+				
+				Node best = (Node)this.open.poll();
+				State terminal = best.getState();
+				if (best.getCost() > this.bestCosts.get(terminal) || this.closed.contains(terminal)) {
+					this.context.duplicate();
+					continue;
+				}
+				if (best.getEstimate() >= bound) {
+					// no node left is ahead of the solution under this weight
+					this.open.add(best);
+					return true;
+				}
+				if (terminal.equals(this.goal)) {
+					this.solution = best;
+					return true;
+				}
+				this.closed.add(terminal);
+				this.context.expanded(best, best.heuristic);
+				
+				int cost = best.getCost() + 1;
+				for (Operator o : Operator.values()) {
+					State s = terminal.transform(o);
+					if (s == null)
+						continue;
+					this.context.generated(s);
+					
+					Integer known = this.bestCosts.get(s);
+					if (known != null && known <= cost) {
+						this.context.duplicate();
+						continue;
+					}
+					int estimate = this.heuristic.evalMove(terminal, best.heuristic, s, bound - cost);
+					this.context.evaluated();
+					if (cost + estimate >= bound) {
+						// can't lead to a shorter solution than the one already found
+						this.context.duplicate();
+						continue;
+					}
+					this.bestCosts.put(s, cost);
+					
+					Node child = new Node(s, cost, cost + this.weigh(estimate), best, o, estimate);
+					if (this.closed.contains(s))
+						this.inconsistent.add(child);
+					else
+						this.open.add(child);
+				}
+				this.context.open(this.open.size() + this.inconsistent.size());
+			}
+			return true;
+		}
+		
+		int reweigh(double weight) {
+			/**
+			 * Changes the weight and queues every node that could still lead to a shorter
+			 * solution again, including the ones set aside, with nothing expanded yet.
+			 * 
+			 * @param weight  the new weight, at least 1
+			 * @return the least path length + (unweighted) estimate of the queued nodes, which is
+			 *         a lower bound on the length of the optimal solution (the solution's length if none are left).
+			 */
+			this.weight = weight;
+			ArrayList<Node> nodes = this.inconsistent;
+			for (SearchNode n; (n = this.open.poll()) != null; )
+				nodes.add((Node)n);
+			
+			int bound = this.solution == null ? Integer.MAX_VALUE : this.solution.getCost();
+			int lower = bound;
+			this.open = new BucketQueue();
+			for (Node n : nodes) {
+				int estimate = n.getCost() + n.heuristic;
+				if (n.getCost() > this.bestCosts.get(n.getState()) || estimate >= bound)
+					continue;
+				lower = Math.min(lower, estimate);
+				this.open.add(new Node(n.getState(), n.getCost(), n.getCost() + this.weigh(n.heuristic), n.getParent(), n.getOperator(), n.heuristic));
+			}
+			nodes.clear();
+			this.closed = new StateSet();
+			return lower;
+		}
+		
+		Path getSolution() {
+			/**
+			 * @return the best solution found so far, or null if none has been found.
+			 */
+			return this.solution == null ? null : this.solution.toPath();
+		}
+		
+		int getSolutionLength() {
+			/**
+			 * @return the length of the best solution so far, or -1 if none has been found.
+			 */
+			return this.solution == null ? -1 : this.solution.getCost();
+		}
+		
+		private int weigh(int estimate) {
+			return (int)(this.weight * estimate);
+		}
+	}
+}
@@ -0,0 +1,95 @@
+package database;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class BucketQueue {
+	/**
+	 * A priority queue of search nodes for integer estimates, ordered like SearchNode:
+	 * least estimate (f) first, and among equal estimates the deepest node (highest g).
+	 * Nodes that tie on both come out last in, first out, so the search keeps following
+	 * the line it just extended.
+	 * 
+	 * Estimates of unit-cost puzzles are small integers, so instead of a heap the queue is
+	 * an array of buckets: one per estimate, each split into one stack per heuristic value
+	 * (f - g, which is least for the deepest node). Adding a node is a push onto its stack,
+	 * and taking the best one pops the lowest non-empty stack of the lowest non-empty
+	 * bucket. Both positions only move forward between adds of smaller values, so both
+	 * operations take constant amortized time whatever the size of the queue.
+	 */
+	
+	private final ArrayList<ArrayList<ArrayList<SearchNode>>> buckets = new ArrayList<>();	// buckets[f][h] is a stack
+	private int[] counts = new int[0];	// counts[f] is the number of nodes in bucket f
+	private int[] lowest = new int[0];	// lowest[f] is at most the smallest h with a non-empty stack in bucket f
+	private int first = 0;				// at most the smallest f with a non-empty bucket
+	private int size = 0;
+	
+	public void add(SearchNode node) {
+		/**
+		 * Adds a node to the queue.
+		 * 
+		 * @param node  a node whose estimate is at least its cost
+		 */
+		int f = node.getEstimate();
+		int h = f - node.getCost();
+		if (h < 0)
+			throw new IllegalArgumentException("Estimate " + f + " is less than the cost " + node.getCost());
+		
+		while (this.buckets.size() <= f) {
+			this.buckets.add(new ArrayList<>());
+		}
+		if (this.counts.length <= f) {
+			int length = Math.max(f + 1, 2 * this.counts.length);
+			this.counts = Arrays.copyOf(this.counts, length);
+			this.lowest = Arrays.copyOf(this.lowest, length);
+		}
+		
+		ArrayList<ArrayList<SearchNode>> bucket = this.buckets.get(f);
+		while (bucket.size() <= h) {
+			bucket.add(new ArrayList<>());
+		}
+		bucket.get(h).add(node);
+		
+		if (this.counts[f]++ == 0 || h < this.lowest[f])
+			this.lowest[f] = h;
+		if (this.size++ == 0 || f < this.first)
+			this.first = f;
+	}
+	
+	public SearchNode poll() {
+		/**
+		 * Removes the best node from the queue.
+		 * 
+		 * @return the node with the least estimate and, of those, the highest cost, or null if the queue is empty.
+		 */
+		if (this.size == 0)
+			return null;
+		
+		while (this.counts[this.first] == 0) {
+			this.first++;
+		}
+		ArrayList<ArrayList<SearchNode>> bucket = this.buckets.get(this.first);
+		while (bucket.get(this.lowest[this.first]).isEmpty()) {
+			this.lowest[this.first]++;
+		}
+		
+		ArrayList<SearchNode> stack = bucket.get(this.lowest[this.first]);
+		this.counts[this.first]--;
+		this.size--;
+		return stack.remove(stack.size() - 1);
+	}
+	
+	public boolean isEmpty() {
+		/**
+		 * @return true if there are no nodes in the queue.
+		 */
+		return this.size == 0;
+	}
+	
+	public int size() {
+		/**
+		 * @return the number of nodes in the queue.
+		 */
+		return this.size;
+	}
+}
@@ -0,0 +1,59 @@
+package database;
+
+import java.util.HashMap;
+
+public class CostMap {
+	/**
+	 * The cheapest known path cost of every state a search has reached. Every state in a
+	 * map must be reachable from every other one, as they are in a single search.
+	 * 
+	 * On boards small enough for a StateSet bitset, costs are kept in an array with one
+	 * byte per state, indexed by State.rank()/2 (a perfect hash of the states reachable from
+	 * each other), so looking up or updating a cost is a single array access with no boxing.
+	 * The 8-puzzle takes 9!/2 bytes (about 181 KB). Costs too large for a byte, which no
+	 * optimal 8-puzzle search comes near, are kept in a hash map instead, as are the costs
+	 * of larger boards. The backing store is chosen when the first cost is put.
+	 */
+	
+	private static final int OVERFLOW = 0xFF;	// marks a cost kept in the hash map
+	
+	private byte[] costs;						// cost + 1 by rank / 2 (0 for unknown), for compact boards
+	private HashMap<State, Integer> large;		// costs that don't fit in costs
+	
+	public int get(State state) {
+		/**
+		 * @param state  the state to look up
+		 * @return the cheapest known cost of the state, or -1 if it hasn't been reached.
+		 */
+		if (this.costs != null) {
+			int cost = this.costs[(int)(state.rank() >>> 1)] & 0xFF;
+			if (cost != OVERFLOW)
+				return cost - 1;
+		}
+		Integer cost = this.large == null ? null : this.large.get(state);
+		return cost == null ? -1 : cost;
+	}
+	
+	public void put(State state, int cost) {
+		/**
+		 * Records the cheapest known cost of the state.
+		 * 
+		 * @param state  the state reached
+		 * @param cost   the cost of the path that reached it (at least 0)
+		 */
+		if (this.costs == null && this.large == null && StateSet.isCompact(state.getCells())) {
+			this.costs = new byte[(int)(State.factorial(state.getCells()) / 2)];
+		}
+		if (this.costs != null) {
+			int index = (int)(state.rank() >>> 1);
+			if (cost < OVERFLOW - 1) {
+				this.costs[index] = (byte)(cost + 1);
+				return;
+			}
+			this.costs[index] = (byte)OVERFLOW;
+		}
+		if (this.large == null)
+			this.large = new HashMap<>();
+		this.large.put(state, cost);
+	}
+}
@@ -0,0 +1,287 @@
+package database;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import operators.Operator;
+
+public class DistanceTable {
+	/**
+	 * The optimal number of moves from every state to one of the canonical goals
+	 * (see State.canonicalGoal), found with a breadth-first search backwards from the goal.
+	 * Any other goal with the blank in the same cell maps onto the table by relabeling its
+	 * tiles (see State.relabel). Reflecting or rotating both states doesn't change the
+	 * distance either (see State.reflect), so only the goals with the blank in a corner,
+	 * on an edge and in the center need tables: each of the 9 blank cells maps onto one of
+	 * those 3 through its canonical symmetry.
+	 * 
+	 * Each table holds the 9!/2 states that can reach its goal, indexed by State.rank()/2,
+	 * at 4 bits per state (about 89 KB). Distances are stored modulo 15: a move always
+	 * changes the distance by exactly one, so the neighbor one step closer to the goal can
+	 * still be recognized, and 0xF is left free to mark unreachable states.
+	 * 
+	 * Tables only exist for the 8-puzzle; the 15-puzzle has 16!/2 states, far too many to store.
+	 */
+	
+	// File layout: MAGIC, width, blank cell of the goal, two entries per byte.
+	private static final int MAGIC = 0x44535431;	// "DST1"
+	private static final int HEADER = 4 + 1 + 1;
+	private static final int MODULUS = 15;
+	private static final int UNKNOWN = 0xF;
+	
+	// Tables for every blank cell, and the tables that have already been built or mapped,
+	// indexed by the goal's blank cell (only representative cells have entries).
+	private static final DistanceTable[] TABLES = new DistanceTable[State.CELLS];
+	private static final ByteBuffer[] ENTRIES = new ByteBuffer[State.CELLS];
+	
+	// The system property naming the directory tables are kept in by default.
+	public static final String DIRECTORY_PROPERTY = "puzzle.tables.dir";
+	
+	// Where tables are kept by default, e.g. by TableLookup() (null for memory only).
+	private static volatile File defaultDirectory = System.getProperty(DIRECTORY_PROPERTY) == null
+			? null : new File(System.getProperty(DIRECTORY_PROPERTY));
+	
+	private final int blank;			// the blank cell of the goal
+	private final int symmetry;			// moves the blank onto the cell the entries were built for
+	private final ByteBuffer entries;	// the table, including its header
+	
+	private DistanceTable(int blank, int symmetry, ByteBuffer entries) {
+		/**
+		 * @param blank     the blank cell of the goal
+		 * @param symmetry  the symmetry that moves the blank onto the representative cell
+		 * @param entries   the table file contents of the representative cell
+		 */
+		this.blank = blank;
+		this.symmetry = symmetry;
+		this.entries = entries;
+	}
+	
+	public static synchronized DistanceTable forBlank(int blank, File directory) {
+		/**
+		 * Gets the table for the canonical goal with the blank at the given cell. The entries
+		 * are those of the cell's representative (see State.canonicalSymmetry), mapped from
+		 * the directory if they were already built there and built otherwise. Tables are
+		 * cached for the life of the JVM.
+		 * 
+		 * @param blank      the blank cell of the goal
+		 * @param directory  where table files are kept, or null to keep tables in memory only
+		 * @return the table.
+		 */
+		if (TABLES[blank] != null)
+			return TABLES[blank];
+		
+		int symmetry = State.canonicalSymmetry(State.WIDTH, blank);
+		TABLES[blank] = new DistanceTable(blank, symmetry, DistanceTable.getEntries(State.reflectCell(State.WIDTH, symmetry, blank), directory));
+		return TABLES[blank];
+	}
+	
+	private static ByteBuffer getEntries(int blank, File directory) {
+		/**
+		 * @return the entries for a representative blank cell, mapping or building them if needed.
+		 */
+		if (ENTRIES[blank] != null)
+			return ENTRIES[blank];
+		
+		String name = "distances-" + State.WIDTH + "-" + blank + ".bin";
+		try {
+			File file = directory == null ? null : new File(directory, name);
+			ByteBuffer entries;
+			if (file != null && file.exists()) {
+				entries = DistanceTable.map(file, blank);
+			}
+			else {
+				byte[] built = DistanceTable.build(blank);
+				if (file != null) {
+					DistanceTable.write(file, built);
+					entries = DistanceTable.map(file, blank);
+				}
+				else {
+					entries = ByteBuffer.wrap(built);
+				}
+			}
+			ENTRIES[blank] = entries;
+		}
+		catch (IOException e) {
+			throw new IllegalStateException("Could not load distance table " + name, e);
+		}
+		return ENTRIES[blank];
+	}
+	
+	public static void setDefaultDirectory(File directory) {
+		/**
+		 * Sets where tables are kept by default, such as the ones written by
+		 * "--precompute DIRECTORY". It starts as the directory named by the puzzle.tables.dir
+		 * system property.
+		 * 
+		 * @param directory  where table files are kept, or null to keep tables in memory only
+		 */
+		DistanceTable.defaultDirectory = directory;
+	}
+	
+	public static File getDefaultDirectory() {
+		/**
+		 * @return where tables are kept by default (null for memory only).
+		 */
+		return DistanceTable.defaultDirectory;
+	}
+	
+	public static void precompute(File directory) {
+		/**
+		 * Builds the tables for every representative blank cell and writes them to the directory.
+		 * 
+		 * @param directory  where the table files are kept
+		 */
+		for (int blank=0; blank<State.CELLS; blank++) {
+			DistanceTable.forBlank(blank, directory);
+		}
+	}
+	
+	public int getBlank() {
+		/**
+		 * @return the blank cell of the goal the table was built for.
+		 */
+		return this.blank;
+	}
+	
+	public Path solve(State initial, State goal) {
+		/**
+		 * Finds an optimal path without searching: starting from the initial state, always
+		 * take the move to the neighbor that is one step closer to the goal. The descent runs
+		 * on the reflected and relabeled state, and every move is mapped back onto the initial state.
+		 * 
+		 * @param initial  the state we start with
+		 * @param goal     the state we're trying to reach. Its blank must be in this table's cell.
+		 * @return the optimal path from initial to goal, or null if goal can't be reached.
+		 * @throws IllegalArgumentException if the states aren't 8-puzzle states.
+		 */
+		if (initial.getWidth() != State.WIDTH || goal.getWidth() != State.WIDTH)
+			throw new IllegalArgumentException("Distance tables only exist for the " + State.WIDTH + "x" + State.WIDTH + " puzzle.");
+		
+		State reflectedGoal = goal.reflect(this.symmetry);
+		State canonical = State.canonicalGoal(reflectedGoal.getBlank());
+		State relabeled = initial.reflect(this.symmetry).relabel(reflectedGoal);
+		int inverse = State.inverseSymmetry(this.symmetry);
+		int distance = DistanceTable.get(this.entries, relabeled.rank() / 2);
+		if (distance == UNKNOWN)
+			return null;
+		
+		ArrayList<State> states = new ArrayList<>();
+		State current = initial;
+		states.add(current);
+		while (!relabeled.equals(canonical)) {
+			int closer = (distance + MODULUS - 1) % MODULUS;
+			for (Operator o : Operator.values()) {
+				State next = relabeled.transform(o);
+				if (next != null && DistanceTable.get(this.entries, next.rank() / 2) == closer) {
+					relabeled = next;
+					current = current.transform(State.reflectOperator(inverse, o));
+					states.add(current);
+					break;
+				}
+			}
+			distance = closer;
+		}
+		return new Path(states);
+	}
+	
+	private static int get(ByteBuffer entries, long index) {
+		/**
+		 * @return the 4-bit entry at the index.
+		 */
+		return DistanceTable.nibble(entries.get(HEADER + (int)(index >>> 1)), index);
+	}
+	
+	private static int nibble(byte b, long index) {
+		/**
+		 * @return the half of the byte holding the entry at the index.
+		 */
+		return (index & 1) == 0 ? b & 0xF : (b >>> 4) & 0xF;
+	}
+	
+	private static byte[] build(int blank) {
+		/**
+		 * Runs a breadth-first search backwards from the canonical goal over every state that can reach it.
+		 * 
+		 * @return the table file contents: the header followed by two entries per byte.
+		 */
+		int size = (int)(State.factorial(State.CELLS) / 2);
+		byte[] table = new byte[HEADER + (size + 1) / 2];
+		Arrays.fill(table, HEADER, table.length, (byte)0xFF);
+		ByteBuffer.wrap(table).putInt(MAGIC).put((byte)State.WIDTH).put((byte)blank);
+		
+		State goal = State.canonicalGoal(blank);
+		DistanceTable.set(table, goal.rank() / 2, 0);
+		int[] frontier = {(int)goal.rank()};
+		int frontierSize = 1;
+		
+		for (int depth=0; frontierSize > 0; depth++) {
+			int[] next = new int[Math.max(16, frontierSize * 2)];
+			int nextSize = 0;
+			
+			for (int f=0; f<frontierSize; f++) {
+				State s = State.unrank(frontier[f]);
+				for (Operator o : Operator.values()) {
+					State n = s.transform(o);
+					if (n == null)
+						continue;
+					long rank = n.rank();
+					if (DistanceTable.nibble(table[HEADER + (int)(rank >>> 2)], rank / 2) != UNKNOWN)
+						continue;
+					DistanceTable.set(table, rank / 2, (depth + 1) % MODULUS);
+					if (nextSize == next.length)
+						next = Arrays.copyOf(next, next.length * 2);
+					next[nextSize++] = (int)rank;
+				}
+			}
+			frontier = next;
+			frontierSize = nextSize;
+		}
+		return table;
+	}
+	
+	private static void set(byte[] table, long index, int value) {
+		/**
+		 * Sets the 4-bit entry at the index.
+		 */
+		int i = HEADER + (int)(index >>> 1);
+		if ((index & 1) == 0)
+			table[i] = (byte)((table[i] & 0xF0) | value);
+		else
+			table[i] = (byte)((table[i] & 0x0F) | (value << 4));
+	}
+	
+	private static void write(File file, byte[] table) throws IOException {
+		/**
+		 * Writes a table to a temporary file and moves it into place so that other
+		 * processes never map a partially written table.
+		 */
+		File directory = file.getAbsoluteFile().getParentFile();
+		directory.mkdirs();
+		File tmp = File.createTempFile(file.getName(), ".tmp", directory);
+		Files.write(tmp.toPath(), table);
+		Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+	
+	private static ByteBuffer map(File file, int blank) throws IOException {
+		/**
+		 * Memory-maps a table file and checks that its header matches the goal.
+		 */
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+			ByteBuffer entries = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			int size = (int)(State.factorial(State.CELLS) / 2);
+			if (entries.limit() != HEADER + (size + 1) / 2
+					|| entries.getInt(0) != MAGIC
+					|| entries.get(4) != State.WIDTH
+					|| entries.get(5) != blank)
+				throw new IOException("Corrupt distance table file " + file);
+			return entries;
+		}
+	}
+}
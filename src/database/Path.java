@@ -97,7 +97,7 @@ public class Path{
 		return this.states.size() - 1;
 	}
 	
-	public float estimate(Heuristic heuristic) {
+	public int estimate(Heuristic heuristic) {
 		/**
 		 * Estimate the number of moves to get to reach the goal state. This number is calculated as:
 		 * 
@@ -130,8 +130,8 @@ public class Path{
 		/**
 		 * Compare this path to another path based on their heuristic estimates.
 		 */
-		float est1 = this.estimate(heuristic);
-		float est2 = other.estimate(heuristic);
+		int est1 = this.estimate(heuristic);
+		int est2 = other.estimate(heuristic);
 		
 		if (est1 > est2) {
 			return 1;
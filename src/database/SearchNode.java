@@ -0,0 +1,106 @@
+package database;
+
+import java.util.ArrayList;
+import java.util.Collections;
+
+import operators.Operator;
+
+public class SearchNode implements Comparable<SearchNode> {
+	/**
+	 * A node in a search tree. Instead of carrying a copy of the whole path like
+	 * a Path does, each node only points back to the node it was generated from,
+	 * so every node costs a constant amount of memory. The Path is built once,
+	 * when a node at the goal is found.
+	 */
+	
+	private final State state;			// the state this node represents
+	private final int cost;				// moves so far
+	private final int estimate;			// moves so far + heuristic estimate from this state
+	private final SearchNode parent;	// the node this one was generated from (null for the root)
+	private final Operator operator;	// the operator applied to the parent (null for the root)
+	
+	public SearchNode(State state, int heuristic) {
+		/**
+		 * Creates the root node of a search.
+		 * 
+		 * @param state      the initial state
+		 * @param heuristic  the heuristic estimate from the initial state
+		 */
+		this(state, 0, heuristic, null, null);
+	}
+	
+	public SearchNode(State state, int cost, int estimate, SearchNode parent, Operator operator) {
+		/**
+		 * @param state     the state this node represents
+		 * @param cost      the number of moves from the root to this node
+		 * @param estimate  the cost plus the heuristic estimate from this state
+		 * @param parent    the node this one was generated from
+		 * @param operator  the operator that transformed the parent's state into this one
+		 */
+		this.state = state;
+		this.cost = cost;
+		this.estimate = estimate;
+		this.parent = parent;
+		this.operator = operator;
+	}
+	
+	public State getState() {
+		/**
+		 * @return the state this node represents.
+		 */
+		return this.state;
+	}
+	
+	public int getCost() {
+		/**
+		 * @return the number of moves from the root to this node.
+		 */
+		return this.cost;
+	}
+	
+	public int getEstimate() {
+		/**
+		 * @return the cost plus the heuristic estimate from this node's state.
+		 */
+		return this.estimate;
+	}
+	
+	public SearchNode getParent() {
+		/**
+		 * @return the node this one was generated from, or null for the root.
+		 */
+		return this.parent;
+	}
+	
+	public Operator getOperator() {
+		/**
+		 * @return the operator applied to the parent to get here, or null for the root.
+		 */
+		return this.operator;
+	}
+	
+	public Path toPath() {
+		/**
+		 * Follows the parent references back to the root to rebuild the path.
+		 * 
+		 * @return the path from the root to this node.
+		 */
+		ArrayList<State> states = new ArrayList<>(this.cost + 1);
+		for (SearchNode n = this; n != null; n = n.parent) {
+			states.add(n.state);
+		}
+		Collections.reverse(states);
+		return new Path(states);
+	}
+	
+	@Override
+	public int compareTo(SearchNode other) {
+		/**
+		 * Least estimate first. Ties go to the deeper node since it's closer to the goal.
+		 */
+		if (this.estimate != other.estimate) {
+			return this.estimate < other.estimate ? -1 : 1;
+		}
+		return other.cost - this.cost;
+	}
+}
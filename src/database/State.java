@@ -9,16 +9,426 @@ import operators.Operator;
 
 public class State {
 	
-	private char[][] board = new char[3][3];
+	// dimensions of the 8-puzzle board, the default size
+	final public static int WIDTH = 3;
+	final public static int CELLS = WIDTH * WIDTH;
 	
-	// stores all states found so far.
-	final public static HashSet<State> database = new HashSet<>();
+	// the largest board whose cells all fit in a packed board (the 15-puzzle)
+	final public static int MAX_WIDTH = 4;
+	
+	// cell codes used in the packed board (4 bits per cell). Tiles are numbered from 1, and
+	// the 15-puzzle uses every code, so wildcards only exist on smaller boards.
+	final public static int BLANK = 0;
+	final public static int WILDCARD = 0xF;
+	
+	// The 8 symmetries of the square board. Symmetry s first reflects the board about its
+	// main diagonal if (s & TRANSPOSE) != 0, then reverses the order of the rows if
+	// (s & FLIP_ROWS) != 0 and the order of the columns if (s & FLIP_COLUMNS) != 0.
+	final public static int SYMMETRIES = 8;
+	final public static int TRANSPOSE = 1;
+	final public static int FLIP_ROWS = 2;
+	final public static int FLIP_COLUMNS = 4;
+	
+	// NEIGHBOR[width][cell][operator] is the cell the blank moves to, or -1 if the move is illegal.
+	final private static int[][][] NEIGHBOR = new int[MAX_WIDTH + 1][][];
+	
+	static {
+		for (int width=2; width<=MAX_WIDTH; width++) {
+			NEIGHBOR[width] = new int[width*width][Operator.values().length];
+			for (int cell=0; cell<width*width; cell++) {
+				int row = cell / width;
+				int col = cell % width;
+				NEIGHBOR[width][cell][Operator.UP.ordinal()]    = row > 0         ? cell - width : -1;
+				NEIGHBOR[width][cell][Operator.DOWN.ordinal()]  = row < width - 1 ? cell + width : -1;
+				NEIGHBOR[width][cell][Operator.LEFT.ordinal()]  = col > 0         ? cell - 1     : -1;
+				NEIGHBOR[width][cell][Operator.RIGHT.ordinal()] = col < width - 1 ? cell + 1     : -1;
+			}
+		}
+	}
+	
+	private final long board;	// cell i is stored in bits [4i, 4i+4)
+	private final int blank;	// index of the blank cell
+	private final int width;	// the number of rows and columns
 	
 	public State(char[][] configuration) {
 		/**
-		 * Creates a State from a 3x3 grid of characters.
+		 * Creates a State from a square grid of characters (3x3 for the 8-puzzle, 4x4 for the 15-puzzle).
+		 */
+		int width = configuration.length;
+		State.checkWidth(width);
+		long packed = 0L;
+		int blankCell = -1;
+		for (int i=0; i<width; i++) {
+			if (configuration[i].length != width)
+				throw new IllegalArgumentException("The board must be square.");
+			for (int j=0; j<width; j++) {
+				int cell = i*width + j;
+				int code = State.toCode(configuration[i][j]);
+				if (code == BLANK)
+					blankCell = cell;
+				packed |= ((long)code) << (4*cell);
+			}
+		}
+		this.board = packed;
+		this.blank = blankCell;
+		this.width = width;
+	}
+	
+	public State(long packed, int blank) {
+		/**
+		 * Creates an 8-puzzle State directly from its packed representation.
+		 * 
+		 * @param packed  the board with 4 bits per cell in row-major order.
+		 * @param blank   the index of the blank cell (row*3 + column).
+		 */
+		this(WIDTH, packed, blank);
+	}
+	
+	public State(int width, long packed, int blank) {
+		/**
+		 * Creates a State directly from its packed representation.
+		 * 
+		 * @param width   the number of rows and columns of the board (2 to 4)
+		 * @param packed  the board with 4 bits per cell in row-major order.
+		 * @param blank   the index of the blank cell (row*width + column).
+		 */
+		State.checkWidth(width);
+		this.board = packed;
+		this.blank = blank;
+		this.width = width;
+	}
+	
+	private static void checkWidth(int width) {
+		/**
+		 * @throws IllegalArgumentException if a packed board can't hold a board of the width.
+		 */
+		if (width < 2 || width > MAX_WIDTH)
+			throw new IllegalArgumentException("Boards must be between 2x2 and " + MAX_WIDTH + "x" + MAX_WIDTH + ".");
+	}
+	
+	public static int toCode(char c) {
+		/**
+		 * @return the 4-bit code used to store the character c in a packed board
+		 *         ('-' for the blank, '1'-'9' and 'A'-'F' for tiles, '*' for a wildcard).
+		 */
+		if (c == '-')
+			return BLANK;
+		if (c == '*')
+			return WILDCARD;
+		if (c >= 'A' && c <= 'F')
+			return c - 'A' + 10;
+		return c - '0';
+	}
+	
+	public static char toChar(int code) {
+		/**
+		 * @return the character represented by the 4-bit code on an 8-puzzle board.
+		 */
+		return State.toChar(code, WIDTH);
+	}
+	
+	public static char toChar(int code, int width) {
+		/**
+		 * @return the character represented by the 4-bit code on a board of the given width.
+		 */
+		if (code == BLANK)
+			return '-';
+		if (code == WILDCARD && width < MAX_WIDTH)
+			return '*';
+		if (code >= 10)
+			return (char)('A' + code - 10);
+		return (char)('0' + code);
+	}
+	
+	public static int codeAt(long packed, int cell) {
+		/**
+		 * @return the code stored at the given cell of a packed board.
+		 */
+		return (int)(packed >>> (4*cell)) & 0xF;
+	}
+	
+	public static int target(int width, int blank, Operator o) {
+		/**
+		 * @return the cell the blank moves to when applying o on a board of the given width, or -1 if o can't be applied.
+		 */
+		return NEIGHBOR[width][blank][o.ordinal()];
+	}
+	
+	public static long slide(long packed, int blank, int target) {
+		/**
+		 * Moves the tile at target into the blank cell of a packed board.
+		 * 
+		 * @param packed  the packed board
+		 * @param blank   the index of the blank cell
+		 * @param target  the index of the cell the blank moves to
+		 * @return the packed board after the move.
+		 */
+		long tile = (packed >>> (4*target)) & 0xFL;
+		return (packed & ~(0xFL << (4*target))) | (tile << (4*blank));
+	}
+	
+	public long getPacked() {
+		/**
+		 * @return the packed board (4 bits per cell in row-major order).
+		 */
+		return this.board;
+	}
+	
+	public int getBlank() {
+		/**
+		 * @return the index of the blank cell (row*width + column).
+		 */
+		return this.blank;
+	}
+	
+	public int getWidth() {
+		/**
+		 * @return the number of rows and columns of the board.
+		 */
+		return this.width;
+	}
+	
+	public int getCells() {
+		/**
+		 * @return the number of cells on the board.
+		 */
+		return this.width * this.width;
+	}
+	
+	public int getCode(int cell) {
+		/**
+		 * @return the code stored at the given cell index.
+		 */
+		return State.codeAt(this.board, cell);
+	}
+	
+	public int indexOf(char search) {
+		/**
+		 * @return the cell index of the search character, or -1 if it isn't on the board.
+		 */
+		int code = State.toCode(search);
+		for (int cell=0; cell<this.getCells(); cell++) {
+			if (State.codeAt(this.board, cell) == code)
+				return cell;
+		}
+		return -1;
+	}
+	
+	public long rank() {
+		/**
+		 * Gives every arrangement of the board a unique number (a perfect hash) between
+		 * 0 and n!-1, where n is the number of cells. The rank is the blank's cell times (n-1)!
+		 * plus the lexicographic rank (Lehmer code) of the order the tiles appear in when the
+		 * board is read row by row.
+		 * 
+		 * Two ranks 2k and 2k+1 always share the blank's cell and differ by swapping the
+		 * last two tiles, so exactly one of them is reachable from any given state. This
+		 * means rank()/2 is a perfect hash of the states reachable from this one.
+		 * 
+		 * @return the rank of the state.
+		 */
+		int tiles = this.getCells() - 1;
+		long rank = 0;
+		int used = 0;
+		int i = 0;
+		for (int cell=0; cell<=tiles; cell++) {
+			int tile = this.getCode(cell) - 1;
+			if (tile < 0)
+				continue;
+			rank = rank*(tiles - i) + tile - Integer.bitCount(used & ((1 << tile) - 1));
+			used |= 1 << tile;
+			i++;
+		}
+		return this.blank * State.factorial(tiles) + rank;
+	}
+	
+	public static State unrank(long rank) {
+		/**
+		 * The inverse of rank() for 8-puzzle boards.
+		 * 
+		 * @param rank  a number between 0 and 9!-1
+		 * @return the state with the given rank.
+		 */
+		return State.unrank(WIDTH, rank);
+	}
+	
+	public static State unrank(int width, long rank) {
+		/**
+		 * The inverse of rank().
+		 * 
+		 * @param width  the number of rows and columns of the board
+		 * @param rank   a number between 0 and n!-1, where n is the number of cells
+		 * @return the state with the given rank.
+		 */
+		int cells = width * width;
+		int tiles = cells - 1;
+		long fact = State.factorial(tiles);
+		int blank = (int)(rank / fact);
+		rank %= fact;
+		
+		// the digits of the Lehmer code, least significant last
+		int[] digits = new int[tiles];
+		for (int i=tiles-1; i>=0; i--) {
+			digits[i] = (int)(rank % (tiles - i));
+			rank /= tiles - i;
+		}
+		
+		long packed = 0L;
+		int used = 0;
+		int i = 0;
+		for (int cell=0; cell<cells; cell++) {
+			if (cell == blank)
+				continue;
+			// the digits[i]-th tile that hasn't been placed yet
+			int tile = -1;
+			for (int skip = digits[i]; skip >= 0; skip--) {
+				do {
+					tile++;
+				} while ((used & (1 << tile)) != 0);
+			}
+			used |= 1 << tile;
+			packed |= ((long)(tile + 1)) << (4*cell);
+			i++;
+		}
+		return new State(width, packed, blank);
+	}
+	
+	public static State canonicalGoal(int blank) {
+		/**
+		 * @return the 8-puzzle goal state with the blank at the given cell and tiles 1-8 filling the other cells in order.
+		 */
+		return State.canonicalGoal(WIDTH, blank);
+	}
+	
+	public static State canonicalGoal(int width, int blank) {
+		/**
+		 * @return the goal state with the blank at the given cell and the tiles filling the other cells in order.
+		 */
+		long packed = 0L;
+		int tile = 1;
+		for (int cell=0; cell<width*width; cell++) {
+			if (cell != blank)
+				packed |= ((long)tile++) << (4*cell);
+		}
+		return new State(width, packed, blank);
+	}
+	
+	public State relabel(State goal) {
+		/**
+		 * Renames the tiles so that the goal becomes canonicalGoal(goal.getBlank()). Renaming
+		 * doesn't change where the blank is, so the relabeled state reaches the canonical goal
+		 * with exactly the same moves this state needs to reach the goal.
+		 * 
+		 * @param goal  the state this state is being solved towards
+		 * @return the relabeled state.
+		 */
+		int[] label = new int[16];
+		int tile = 1;
+		for (int cell=0; cell<this.getCells(); cell++) {
+			if (cell != goal.blank)
+				label[goal.getCode(cell)] = tile++;
+		}
+		
+		long packed = 0L;
+		for (int cell=0; cell<this.getCells(); cell++) {
+			packed |= ((long)label[this.getCode(cell)]) << (4*cell);
+		}
+		return new State(this.width, packed, this.blank);
+	}
+	
+	public static int reflectCell(int width, int symmetry, int cell) {
+		/**
+		 * @return the cell the symmetry moves the cell to on a board of the given width.
 		 */
-		this.board = configuration;
+		int row = cell / width;
+		int col = cell % width;
+		if ((symmetry & TRANSPOSE) != 0) {
+			int swap = row;
+			row = col;
+			col = swap;
+		}
+		if ((symmetry & FLIP_ROWS) != 0)
+			row = width - 1 - row;
+		if ((symmetry & FLIP_COLUMNS) != 0)
+			col = width - 1 - col;
+		return row*width + col;
+	}
+	
+	public static Operator reflectOperator(int symmetry, Operator o) {
+		/**
+		 * @return the move of the reflected blank that matches the move o of the blank.
+		 */
+		if ((symmetry & TRANSPOSE) != 0) {
+			switch (o) {
+				case UP:    o = Operator.LEFT; break;
+				case DOWN:  o = Operator.RIGHT; break;
+				case LEFT:  o = Operator.UP; break;
+				default:    o = Operator.DOWN; break;
+			}
+		}
+		if ((symmetry & FLIP_ROWS) != 0 && (o == Operator.UP || o == Operator.DOWN))
+			o = o.inverse();
+		if ((symmetry & FLIP_COLUMNS) != 0 && (o == Operator.LEFT || o == Operator.RIGHT))
+			o = o.inverse();
+		return o;
+	}
+	
+	public static int inverseSymmetry(int symmetry) {
+		/**
+		 * @return the symmetry that undoes the given one.
+		 */
+		if ((symmetry & TRANSPOSE) == 0)
+			return symmetry;
+		
+		// undoing the flips before transposing flips the other axis
+		int inverse = TRANSPOSE;
+		if ((symmetry & FLIP_ROWS) != 0)
+			inverse |= FLIP_COLUMNS;
+		if ((symmetry & FLIP_COLUMNS) != 0)
+			inverse |= FLIP_ROWS;
+		return inverse;
+	}
+	
+	public static int canonicalSymmetry(int width, int cell) {
+		/**
+		 * Picks the representative of the cell's symmetry class: the lowest cell any symmetry
+		 * moves it to (a corner, an edge cell next to the top-left corner, ...). Tables built
+		 * for the representative cover every cell of its class.
+		 * 
+		 * @return the first symmetry that moves the cell to the lowest cell it can be moved to.
+		 */
+		int best = 0;
+		for (int symmetry=1; symmetry<SYMMETRIES; symmetry++) {
+			if (State.reflectCell(width, symmetry, cell) < State.reflectCell(width, best, cell))
+				best = symmetry;
+		}
+		return best;
+	}
+	
+	public State reflect(int symmetry) {
+		/**
+		 * Moves every tile (and the blank) to the cell the symmetry moves its cell to, keeping
+		 * the tile labels. Reflecting a goal and every state in the same way keeps the number
+		 * of moves between them: each move becomes the move given by reflectOperator.
+		 * 
+		 * @param symmetry  one of the SYMMETRIES (0 is the identity)
+		 * @return the reflected state.
+		 */
+		long packed = 0L;
+		for (int cell=0; cell<this.getCells(); cell++) {
+			packed |= ((long)this.getCode(cell)) << (4*State.reflectCell(this.width, symmetry, cell));
+		}
+		return new State(this.width, packed, State.reflectCell(this.width, symmetry, this.blank));
+	}
+	
+	public static long factorial(int n) {
+		/**
+		 * @return n!
+		 */
+		long result = 1;
+		for (int i=2; i<=n; i++)
+			result *= i;
+		return result;
 	}
 	
 	public int getInvCount() {
@@ -29,20 +439,13 @@ public class State {
 		 */
 		int invCount = 0; // Inversion count. Google 8-puzzle Inversion.
 		
-		//Squashing the 2D array to a 1D array for easier processing.
-		char[][] board2D = this.board;
-		char[] board1D = new char[9];
-		for(int i = 0; i < 3; i++) {
-			for(int j = 0; j < 3; j++) {
-				board1D[(i*3)+(j)] = board2D[i][j];
-			}
-		}
-		
 		//Compare every element against every subsequent element.
-	    for(int i = 0; i < 9-1; i++) {
-	    	for(int j = i+1; j < 9; j++) {
+	    for(int i = 0; i < this.getCells()-1; i++) {
+	    	int a = this.getCode(i);
+	    	for(int j = i+1; j < this.getCells(); j++) {
+	    		int b = this.getCode(j);
 	    		//Ignore blanks '-'.
-	    		if( (board1D[i] != '-') && (board1D[j] != '-') && (board1D[i] > board1D[j]) ){
+	    		if( (a != BLANK) && (b != BLANK) && (a > b) ){
 	    			invCount++;
 	    		}
 	    	}
@@ -53,10 +456,22 @@ public class State {
 	
 	public boolean canReach(State goalState) {
 		/**
-		 * Tells you if the 8-puzzle has a solution or not for the given initial state and goal state. 
+		 * Tells you if the puzzle has a solution or not for the given initial state and goal state.
+		 * 
+		 * On boards of odd width, moving the blank up or down jumps a tile over an even number
+		 * of others, so the evenness of the inversion count never changes. On boards of even
+		 * width (like the 15-puzzle), it jumps an odd number of tiles, so the inversion count
+		 * flips evenness exactly when the blank changes rows; the sum of the two is what stays fixed.
 		 */
+		if (this.width != goalState.width)
+			return false;
+		
 		int initInversions = this.getInvCount();
 		int goalInversions = goalState.getInvCount();
+		if (this.width % 2 == 0) {
+			initInversions += this.blank / this.width;
+			goalInversions += goalState.blank / goalState.width;
+		}
 		
 		//If the evenness or oddness of the number of inversions between the two states differ, unsolvable.
 		return (initInversions % 2) == (goalInversions % 2);
@@ -66,19 +481,43 @@ public class State {
 		/**
 		 * @return a randomly-generated state
 		 */
-		char[] b = {'1', '2', '3', '4', '5', '6', '7', '8', '-'};
-		
-        Random random = new Random();
-        random.nextInt();
-        for (int i = 0; i < 9; i++) {
-            int change = i + random.nextInt(9 - i);
-            char temp = b[i];
+		return State.generateRandom(new Random());
+	}
+	
+	public static State generateRandom(Random random) {
+		/**
+		 * @param random  where the state comes from. The same seed always gives the same state.
+		 * @return a randomly-generated 8-puzzle state
+		 */
+		return State.generateRandom(WIDTH, random);
+	}
+	
+	public static State generateRandom(int width, Random random) {
+		/**
+		 * @param width   the number of rows and columns of the board
+		 * @param random  where the state comes from. The same seed always gives the same state.
+		 * @return a randomly-generated state
+		 */
+		int cells = width * width;
+		int[] b = new int[cells];	// the tiles in order, then the blank
+		for (int i = 0; i < cells; i++)
+			b[i] = (i + 1) % cells;
+        
+        for (int i = 0; i < cells; i++) {
+            int change = i + random.nextInt(cells - i);
+            int temp = b[i];
             b[i] = b[change];
             b[change] = temp;
         }
-		
-        char[][] board = {{b[0], b[1], b[2]},{b[3], b[4], b[5]},{b[6], b[7], b[8]}};
-		return new State(board);
+        
+        long packed = 0L;
+        int blankCell = -1;
+        for (int cell = 0; cell < cells; cell++) {
+        	if (b[cell] == BLANK)
+        		blankCell = cell;
+        	packed |= ((long)b[cell]) << (4*cell);
+        }
+		return new State(width, packed, blankCell);
 	}
 	
 	public HashSet<Operator> getOperators() {
@@ -89,18 +528,10 @@ public class State {
 		 */
 		HashSet<Operator> ops = new HashSet<Operator>();
 		
-		HashMap<String, Integer> pos = this.getLocation('-');
-		int row = pos.get("row");
-		int col = pos.get("column");
-		
-		if (row > 1) 
-			ops.add(Operator.UP);
-		if (row < 3)
-			ops.add(Operator.DOWN);
-		if (col > 1)
-			ops.add(Operator.LEFT);
-		if (col < 3)
-			ops.add(Operator.RIGHT);
+		for (Operator o : Operator.values()) {
+			if (State.target(this.width, this.blank, o) >= 0)
+				ops.add(o);
+		}
 		
 		return ops;
 	}
@@ -113,8 +544,9 @@ public class State {
 		 * @param result  the state to transform into.
 		 * @return the operator used to transform the current state into the result state.
 		 */
-		for (Operator o : this.getOperators()) {
-			if (this.transform(o).equals(result)) {
+		for (Operator o : Operator.values()) {
+			int target = State.target(this.width, this.blank, o);
+			if (target >= 0 && target == result.blank && State.slide(this.board, this.blank, target) == result.board) {
 				return o;
 			}
 		}
@@ -125,34 +557,30 @@ public class State {
 		/**
 		 * Gets the location of the search character in the state. The location is returned
 		 * as a map. The keys in the map are "row" and "column" and the values are between
-		 * 1 and 3 (inclusive).
+		 * 1 and the width of the board (inclusive).
 		 * 
 		 * @param search The character to search for
 		 * @return A map containing the location.
 		 */
-		HashMap<String, Integer> loc = new HashMap<String, Integer>();
+		int cell = this.indexOf(search);
+		if (cell < 0)
+			return null;
 		
-		for (int i=1; i<=3; i++) {
-			for (int j=1; j<=3; j++) {
-				if (this.board[i-1][j-1] == search){
-					loc.put("row", i);
-					loc.put("column", j);
-					return loc;
-				}
-			}
-		}
-		return null;
+		HashMap<String, Integer> loc = new HashMap<String, Integer>();
+		loc.put("row", cell / this.width + 1);
+		loc.put("column", cell % this.width + 1);
+		return loc;
 	}
 	
 	public char getAt(int row, int col) {
 		/**
 		 * Get the character at the location (row, col)
 		 * 
-		 * @param row  the index of the row to search at in the range 0-2
-		 * @param col  the index of the column to search at in the range 0-2
+		 * @param row  the index of the row to search at in the range 0 to width-1
+		 * @param col  the index of the column to search at in the range 0 to width-1
 		 * @return the character at the location (row, col)
 		 */
-		return this.board[row][col];
+		return State.toChar(this.getCode(row*this.width + col), this.width);
 	}
 	
 	public boolean equals(Object obj) {
@@ -168,49 +596,32 @@ public class State {
 		if((obj == null) || (obj.getClass() != this.getClass()))
 			return false; 
 		
-		State s = (State) obj;
-		
-		for (int i=0; i<3; i++) {
-			for (int j=0; j<3; j++) {
-				if (this.getAt(i, j) != s.getAt(i, j)) {
-					return false;
-				}
-			}
-		}
-		
-		return true;
+		return this.board == ((State) obj).board && this.width == ((State) obj).width;
 	}
 	
 	@Override 
 	public int hashCode() { 
 		/**
 		 * Allows us to hash a state.
-		 * To get the hashcode, we append all numbers in the state together and 
-		 * replace the blank with 0, then parse into an integer.
+		 * The packed board is multiplied by a large odd constant so that every cell
+		 * influences the high bits, then both halves are folded together.
 		 * 
 		 * @return the hashed state
 		 */
-		String result = "";
-		for (int i=0; i<3; i++) {
-			for (int j=0; j<3; j++) {
-				result += Character.toString(this.getAt(i, j));
-			}
-		}
-		result = result.replace('-', '0');
-		return Integer.parseInt(result); 
+		long h = this.board * 0x9E3779B97F4A7C15L;
+		return (int)(h ^ (h >>> 32));
 	}
 	
 	public ArrayList<State> getNeighbors() {
 		/**
 		 * @return the neighboring states by applying all possible operators.
 		 */
-		ArrayList<State> unexplored = new ArrayList<State>();
+		ArrayList<State> unexplored = new ArrayList<State>(4);
 		
-		for (Operator o : this.getOperators()) {
+		for (Operator o : Operator.values()) {
 			State neighbor = this.transform(o);
 			if (neighbor != null) {
 				unexplored.add(neighbor);
-				State.database.add(neighbor);
 			}
 		}
 		
@@ -226,12 +637,27 @@ public class State {
 		 * @param times the number of times to shuffle
 		 * @return the shuffled state
 		 */
+		return this.shuffle(times, new Random());
+	}
+	
+	public State shuffle(int times, Random rand) {
+		/**
+		 * Shuffles the state a given number of times by performing valid operations.
+		 * 
+		 * @param times  the number of times to shuffle
+		 * @param rand   where the moves come from. The same seed always gives the same shuffle.
+		 * @return the shuffled state
+		 */
 		State newState = this;
 		Path p = new Path(this);
-		Random rand = new Random();
 		
 		for (int i=0; i<times; i++) {
-			ArrayList<Operator> ops = new ArrayList<>(newState.getOperators());
+			// in declaration order rather than getOperators() order, which can change between runs
+			ArrayList<Operator> ops = new ArrayList<>(4);
+			for (Operator o : Operator.values()) {
+				if (State.target(this.width, newState.blank, o) >= 0)
+					ops.add(o);
+			}
 			
 			int size = ops.size();
 			int item = rand.nextInt(size);
@@ -262,69 +688,41 @@ public class State {
 		 * @param o  The operator to apply to the current state.
 		 * @return the new state after the operator is applied.
 		 */
-		
-		if (!this.getOperators().contains(o))
+		int target = State.target(this.width, this.blank, o);
+		if (target < 0)
 			return null;
 		
-		int originalRow = this.getLocation('-').get("row") - 1;
-		int originalCol = this.getLocation('-').get("column") - 1;
-		int tradeRow = originalRow;
-		int tradeCol = originalCol;
-		char[][] newBoard = new char[3][3];
-		for (int i=0; i<3; i++) {
-			for (int j=0; j<3; j++) {
-				newBoard[i][j] = this.board[i][j];
-			}
-		}
-		
-		if (o == Operator.UP) {
-			tradeRow = originalRow - 1;
-		}
-		if (o == Operator.DOWN) {
-			tradeRow = originalRow + 1;
-		}
-		if (o == Operator.LEFT) {
-			tradeCol = originalCol - 1;
-		}
-		if (o == Operator.RIGHT) {
-			tradeCol = originalCol + 1;
-		}
-
-		newBoard[originalRow][originalCol] = newBoard[tradeRow][tradeCol];
-		newBoard[tradeRow][tradeCol] = '-';
-		State newState = new State(newBoard);
-		
-		return newState;
+		return new State(this.width, State.slide(this.board, this.blank, target), target);
 	}
 	
 	public State replaceWithWildCards(ArrayList<Character> chars) {
 		/**
 		 * @return a new state but all characters given are replaced with '*'
+		 * @throws IllegalStateException on the 15-puzzle, whose tiles use every code.
 		 */
-		char[][] newBoard = new char[3][3];
-		for (int i=0; i<3; i++) {
-			for (int j=0; j<3; j++) {
-				if (chars.contains(this.board[i][j])) {
-					newBoard[i][j] = '*';
-				}
-				else {
-					newBoard[i][j] = this.board[i][j];
-				}
+		if (this.width == MAX_WIDTH)
+			throw new IllegalStateException("Wildcards aren't supported on " + MAX_WIDTH + "x" + MAX_WIDTH + " boards.");
+		
+		long packed = this.board;
+		for (int cell=0; cell<this.getCells(); cell++) {
+			if (chars.contains(State.toChar(this.getCode(cell), this.width))) {
+				packed |= ((long)WILDCARD) << (4*cell);
 			}
 		}
 		
-		return new State(newBoard);
+		int blankCell = State.codeAt(packed, this.blank) == BLANK ? this.blank : -1;
+		return new State(this.width, packed, blankCell);
 	}
 	
-	@Override
+	@Override 
 	public String toString() {
 		/**
 		 * Convert the state to a string.
 		 */
 		String str = "";
-		for (int i=0; i<3; i++) {
-			for (int j=0; j<3; j++) {
-				str += String.format("%c ", this.board[i][j]);
+		for (int i=0; i<this.width; i++) {
+			for (int j=0; j<this.width; j++) {
+				str += String.format("%c ", this.getAt(i, j));
 			}
 			str += "\n";
 		}
@@ -0,0 +1,125 @@
+package database;
+
+import java.util.HashSet;
+
+public class StateSet {
+	/**
+	 * A set of states backed by a bitset indexed by State.rank(). Every possible
+	 * arrangement of the 8-puzzle has one bit, so the whole set takes 9!/8 bytes (about
+	 * 45 KB) and adding or looking up a state is a single array access.
+	 * 
+	 * Larger boards have far too many arrangements for a bitset (16! for the 15-puzzle),
+	 * so their states are kept in a hash set instead. The backing store is chosen when
+	 * the first state is added; every state in a set must have the same width.
+	 */
+	
+	// the largest board that gets a bitset
+	public static final int MAX_BITSET_CELLS = State.CELLS;
+	
+	private long[] bits;				// one bit per rank, for boards of up to MAX_BITSET_CELLS cells
+	private HashSet<State> states;		// for larger boards
+	private int size = 0;
+	
+	public static boolean isCompact(int cells) {
+		/**
+		 * @return whether a set of states with the given number of cells is a bitset.
+		 */
+		return cells <= MAX_BITSET_CELLS;
+	}
+	
+	public boolean add(State state) {
+		/**
+		 * Adds the state to the set.
+		 * 
+		 * @param state  the state to add
+		 * @return true if the state was added, false if it was already in the set.
+		 */
+		if (this.bits == null) {
+			if (this.states != null || !StateSet.isCompact(state.getCells())) {
+				if (this.states == null)
+					this.states = new HashSet<>();
+				if (!this.states.add(state))
+					return false;
+				this.size++;
+				return true;
+			}
+			this.bits = new long[(int)((State.factorial(state.getCells()) + 63) / 64)];
+		}
+		
+		long rank = state.rank();
+		int word = (int)(rank >>> 6);
+		long mask = 1L << rank;
+		if ((this.bits[word] & mask) != 0)
+			return false;
+		this.bits[word] |= mask;
+		this.size++;
+		return true;
+	}
+	
+	public boolean contains(State state) {
+		/**
+		 * @return true if the state is in the set.
+		 */
+		if (this.bits == null)
+			return this.states != null && this.states.contains(state);
+		
+		long rank = state.rank();
+		return (this.bits[(int)(rank >>> 6)] & (1L << rank)) != 0;
+	}
+	
+	public boolean remove(State state) {
+		/**
+		 * Removes the state from the set.
+		 * 
+		 * @return true if the state was in the set.
+		 */
+		if (this.bits == null) {
+			if (this.states == null || !this.states.remove(state))
+				return false;
+			this.size--;
+			return true;
+		}
+		
+		long rank = state.rank();
+		int word = (int)(rank >>> 6);
+		long mask = 1L << rank;
+		if ((this.bits[word] & mask) == 0)
+			return false;
+		this.bits[word] &= ~mask;
+		this.size--;
+		return true;
+	}
+	
+	public void addAll(StateSet other) {
+		/**
+		 * Adds every state of the other set to this one.
+		 * 
+		 * @param other  a set of states of the same width as this set's
+		 */
+		if (other.bits != null) {
+			if (this.bits == null && this.states == null) {
+				this.bits = new long[other.bits.length];
+			}
+			if (this.bits != null) {
+				this.size = 0;
+				for (int i=0; i<this.bits.length; i++) {
+					this.bits[i] |= other.bits[i];
+					this.size += Long.bitCount(this.bits[i]);
+				}
+				return;
+			}
+		}
+		if (other.states != null) {
+			for (State state : other.states) {
+				this.add(state);
+			}
+		}
+	}
+	
+	public int size() {
+		/**
+		 * @return the number of states in the set.
+		 */
+		return this.size;
+	}
+}
@@ -2,32 +2,222 @@ package heuristics;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 
 import database.State;
 
 public class CompositeHeuristic implements Heuristic {
+	/**
+	 * The max of several heuristics for the same goal, which is admissible if all of them are.
+	 * 
+	 * The components are held once and evaluated from cheapest to dearest (see getCost).
+	 * A component that is dominated by another one (see dominates) can never raise the max,
+	 * so it's dropped when the composite is built and never evaluated at all. When a search
+	 * only needs to know whether the estimate reaches a limit (see Heuristic.evalMove), the
+	 * evaluation stops at the first component that reaches it, so the dearer components
+	 * are skipped for nodes that are discarded anyway.
+	 * 
+	 * Optionally, results are memoized in a direct-mapped cache keyed by the packed board:
+	 * a fixed array of keys and values where each state has a single slot and a newer state
+	 * simply replaces an older one. The cache isn't synchronized, so a composite with a
+	 * cache must only be used by one search at a time (use forGoal to get another).
+	 */
 	
-	private State goal;
+	// what getSummary returns for CompositeHeuristic(goal), so it can be described before it is built
+	public static final String SUMMARY = "Manhattan Distance (the max with Misplaced Tiles, which it dominates)";
+	
+	private final Heuristic[] components;	// the undominated components, cheapest first
+	private final String summary;
+	private final int cacheSize;			// the number of slots in the cache (0 for none)
+	private final long[] keys;				// keys[slot] is the packed board cached in the slot (0 for empty)
+	private final int[] values;				// values[slot] is the value of that board
+	private final int shift;				// 64 - log2(cacheSize), to pick a slot from a hash
 	
 	public CompositeHeuristic(State goal) {
 		/**
 		 * Constructs a CompositeHeuristic heuristic and sets the goal state.
+		 * Both component heuristics share one set of goal lookup tables.
 		 */
-		this.goal = goal;
+		this(new GoalTable(goal));
 	}
-
+	
+	private CompositeHeuristic(GoalTable table) {
+		this(CompositeHeuristic.SUMMARY, 0,
+				new MisplacedTiles(table), new ManhattanDistance(table));
+	}
+	
+	public CompositeHeuristic(State goal, boolean patternDatabase, int cacheSize) {
+		/**
+		 * Constructs the max of the strongest heuristics for the goal state: Linear Conflict
+		 * and Walking Distance, and optionally a pattern database.
+		 * 
+		 * @param goal             the state we're trying to reach
+		 * @param patternDatabase  whether to include the goal's default pattern database
+		 * @param cacheSize        the number of results to memoize (rounded up to a power of two), or 0
+		 */
+		this(CompositeHeuristic.strongestSummary(patternDatabase, cacheSize), cacheSize,
+				CompositeHeuristic.strongest(goal, patternDatabase));
+	}
+	
+	public static String strongestSummary(boolean patternDatabase, int cacheSize) {
+		/**
+		 * @return what getSummary returns for CompositeHeuristic(goal, patternDatabase, cacheSize),
+		 *         so it can be described before it is built.
+		 */
+		return "Max of Linear Conflict" + (patternDatabase ? ", Walking Distance and the pattern database" : " and Walking Distance")
+				+ (cacheSize > 0 ? ", memoized" : "");
+	}
+	
+	public CompositeHeuristic(int cacheSize, Heuristic... components) {
+		/**
+		 * Constructs the max of any heuristics.
+		 * 
+		 * @param cacheSize   the number of results to memoize (rounded up to a power of two), or 0
+		 * @param components  heuristics that all estimate the distance to the same goal state
+		 */
+		this(null, cacheSize, components);
+	}
+	
+	private CompositeHeuristic(String summary, int cacheSize, Heuristic... components) {
+		/**
+		 * Sorts the components by cost and drops the dominated ones. Of two components that
+		 * dominate each other, the cheaper one is kept.
+		 */
+		if (components.length == 0)
+			throw new IllegalArgumentException("A composite heuristic needs at least one component");
+		if (cacheSize < 0)
+			throw new IllegalArgumentException("Negative cache size " + cacheSize);
+		
+		Heuristic[] sorted = components.clone();
+		Arrays.sort(sorted, Comparator.comparingInt(Heuristic::getCost));
+		ArrayList<Heuristic> kept = new ArrayList<>();
+		for (Heuristic candidate : sorted) {
+			if (kept.stream().anyMatch(k -> k.dominates(candidate)))
+				continue;
+			kept.removeIf(candidate::dominates);
+			kept.add(candidate);
+		}
+		this.components = kept.toArray(new Heuristic[kept.size()]);
+		
+		if (summary == null) {
+			summary = "Max of";
+			for (int i=0; i<components.length; i++)
+				summary += (i == 0 ? " " : ", ") + components[i].getClass().getSimpleName();
+		}
+		this.summary = summary;
+		
+		int slots = cacheSize == 0 ? 0 : Integer.highestOneBit(Math.max(cacheSize - 1, 1)) << 1;
+		this.cacheSize = slots;
+		this.keys = new long[slots];
+		this.values = new int[slots];
+		this.shift = 64 - Integer.numberOfTrailingZeros(Math.max(slots, 1));
+	}
+	
+	private static Heuristic[] strongest(State goal, boolean patternDatabase) {
+		GoalTable table = new GoalTable(goal);
+		if (patternDatabase)
+			return new Heuristic[] {new LinearConflict(table), new WalkingDistance(table), new PatternDatabase(goal)};
+		return new Heuristic[] {new LinearConflict(table), new WalkingDistance(table)};
+	}
+	
+	@Override
+	public int eval(State src) {
+		/**
+		 * Returns the maximum of the components, from the cache if the state is in it.
+		 */
+		return this.eval(src, Integer.MAX_VALUE);
+	}
+	
+	private int eval(State src, int limit) {
+		/**
+		 * Returns the maximum of the components, or a partial maximum once it reaches the
+		 * limit. Partial maximums aren't cached.
+		 */
+		if (this.cacheSize == 0)
+			return this.max(src, limit);
+		
+		long key = src.getPacked();
+		int slot = (int)((key * 0x9E3779B97F4A7C15L) >>> this.shift);
+		if (this.keys[slot] == key)
+			return this.values[slot];
+		
+		int value = this.max(src, limit);
+		if (value < limit) {
+			this.keys[slot] = key;
+			this.values[slot] = value;
+		}
+		return value;
+	}
+	
+	@Override
+	public int evalMove(State parent, int parentValue, State child) {
+		/**
+		 * When a single component is left, its own value is the parent's value, so it can be
+		 * updated for just the moved tile. Otherwise the parts of the max aren't known.
+		 */
+		if (this.components.length == 1 && this.cacheSize == 0)
+			return this.components[0].evalMove(parent, parentValue, child);
+		return this.eval(child);
+	}
+	
 	@Override
-	public float eval(State src) {
+	public int evalMove(State parent, int parentValue, State child, int limit) {
 		/**
-		 * Returns the maximum between the misplaced tiles and manhattan distance heuristics.
+		 * Evaluates the components from cheapest to dearest and stops at the first one that
+		 * reaches the limit, since the max can only be higher.
 		 */
-		Heuristic misplaced = new MisplacedTiles(goal);
-		Heuristic manhattan = new ManhattanDistance(goal);
-		return Math.max(misplaced.eval(src), manhattan.eval(src));
+		if (this.components.length == 1 && this.cacheSize == 0)
+			return this.components[0].evalMove(parent, parentValue, child);
+		return this.eval(child, limit);
+	}
+	
+	@Override
+	public int getCost() {
+		int cost = 0;
+		for (Heuristic h : this.components)
+			cost += h.getCost();
+		return cost;
+	}
+	
+	@Override
+	public boolean dominates(Heuristic other) {
+		for (Heuristic h : this.components) {
+			if (h.dominates(other))
+				return true;
+		}
+		return other instanceof NoHeuristic;
+	}
+	
+	@Override
+	public Heuristic forGoal(State goal) {
+		/**
+		 * Builds the same components for the new goal, with a cache of its own.
+		 */
+		Heuristic[] components = new Heuristic[this.components.length];
+		for (int i=0; i<components.length; i++)
+			components[i] = this.components[i].forGoal(goal);
+		return new CompositeHeuristic(this.summary, this.cacheSize, components);
 	}
 	
 	@Override
 	public String getSummary() {
-		return "Max of Misplaced Tiles and Manhattan Distance heuristics";
+		return this.summary;
+	}
+	
+	public Heuristic[] getComponents() {
+		/**
+		 * @return the components that are evaluated, cheapest first.
+		 */
+		return this.components.clone();
+	}
+	
+	private int max(State src, int limit) {
+		int max = 0;
+		for (Heuristic h : this.components) {
+			max = Math.max(max, h.eval(src));
+			if (max >= limit)
+				break;
+		}
+		return max;
 	}
 }
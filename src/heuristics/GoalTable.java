@@ -0,0 +1,82 @@
+package heuristics;
+
+import database.State;
+
+public class GoalTable {
+	/**
+	 * Lookup tables describing a goal state, computed once so that heuristics can be
+	 * evaluated with plain array indexing instead of searching the goal for every tile.
+	 * 
+	 * Tiles are identified by their State code (see State.toCode) and cells by their
+	 * index (row*width + column).
+	 */
+	
+	private final State goal;
+	private final int cells;		// the number of cells on the goal's board
+	private final int[] goalCell;	// goalCell[tile] is the cell the tile belongs in
+	private final int[] tileAt;		// tileAt[cell] is the tile the goal has in the cell
+	private final int[] distance;	// distance[tile*cells + cell] is the manhattan distance from cell to the tile's goal cell
+	
+	public GoalTable(State goal) {
+		/**
+		 * Builds the lookup tables for the goal state.
+		 * 
+		 * @param goal  the state we're trying to reach
+		 */
+		this.goal = goal;
+		this.cells = goal.getCells();
+		this.goalCell = new int[16];
+		this.tileAt = new int[this.cells];
+		this.distance = new int[16 * this.cells];
+		
+		int width = goal.getWidth();
+		for (int cell=0; cell<this.cells; cell++) {
+			int tile = goal.getCode(cell);
+			this.tileAt[cell] = tile;
+			this.goalCell[tile] = cell;
+		}
+		
+		for (int tile=1; tile<this.cells; tile++) {
+			for (int cell=0; cell<this.cells; cell++) {
+				int target = this.goalCell[tile];
+				this.distance[tile*this.cells + cell] = Math.abs(cell/width - target/width)
+						+ Math.abs(cell%width - target%width);
+			}
+		}
+	}
+	
+	public State getGoal() {
+		/**
+		 * @return the goal state the tables were built for.
+		 */
+		return this.goal;
+	}
+	
+	public int goalCell(int tile) {
+		/**
+		 * @return the cell the tile occupies in the goal state.
+		 */
+		return this.goalCell[tile];
+	}
+	
+	public int tileAt(int cell) {
+		/**
+		 * @return the tile the goal state has in the cell.
+		 */
+		return this.tileAt[cell];
+	}
+	
+	public int distance(int tile, int cell) {
+		/**
+		 * @return the manhattan distance from the cell to the tile's goal cell (0 for the blank).
+		 */
+		return this.distance[tile*this.cells + cell];
+	}
+	
+	public boolean isMisplaced(int tile, int cell) {
+		/**
+		 * @return true if tile is not the blank and doesn't belong in the cell.
+		 */
+		return tile != State.BLANK && tile != this.tileAt[cell];
+	}
+}
@@ -6,7 +6,7 @@ public interface Heuristic {
 	/**
 	 * The interface used by all heuristics
 	 */
-	default public float eval(State src) {
+	default public int eval(State src) {
 		/**
 		 * Estimates how many moves it would take to move from the src state to the goal state.
 		 * This always gives an underestimate to ensure optimality with the A* algorithm.
@@ -14,7 +14,65 @@ public interface Heuristic {
 		 * @param src  The state to estimate the number of moves from the goal.
 		 * @return an underestimate of the number of moves it would take to reach the goal state from the src state.
 		 */
-		return .0f;
+		return 0;
+	}
+	default public int evalMove(State parent, int parentValue, State child) {
+		/**
+		 * Estimates the distance from child to the goal state, given that child was generated
+		 * by moving a single tile of parent into the blank and parent was estimated at
+		 * parentValue. Heuristics that can account for just the moved tile should override
+		 * this so that generating a node doesn't rescan the whole board.
+		 * 
+		 * @param parent       the state child was generated from.
+		 * @param parentValue  the value of eval(parent).
+		 * @param child        the state to estimate the number of moves from the goal.
+		 * @return the same value as eval(child).
+		 */
+		return this.eval(child);
+	}
+	default public int evalMove(State parent, int parentValue, State child, int limit) {
+		/**
+		 * Like evalMove, for searches that discard the child once its estimate reaches a limit
+		 * (e.g. because it can't lead to a shorter solution than one already found). Heuristics
+		 * made of several parts can stop as soon as the limit is reached.
+		 * 
+		 * @param parent       the state child was generated from.
+		 * @param parentValue  the value of eval(parent).
+		 * @param child        the state to estimate the number of moves from the goal.
+		 * @param limit        the estimate at which the child is discarded.
+		 * @return the same value as eval(child) if it's less than limit, otherwise a value
+		 *         between limit and eval(child).
+		 */
+		return this.evalMove(parent, parentValue, child);
+	}
+	default public Heuristic forGoal(State goal) {
+		/**
+		 * Creates the same kind of heuristic for a different goal state. This lets searches
+		 * that run backwards from the goal estimate the distance to the initial state.
+		 * 
+		 * @param goal  the state the new heuristic estimates the distance to.
+		 * @return a heuristic of the same kind for the goal (no heuristic if not overridden).
+		 */
+		return new NoHeuristic(goal);
+	}
+	default public int getCost() {
+		/**
+		 * Estimates how expensive eval is compared to other heuristics, roughly in passes over
+		 * the board. CompositeHeuristic evaluates its components from cheapest to dearest.
+		 * 
+		 * @return the relative cost of an evaluation (1 if not overridden).
+		 */
+		return 1;
+	}
+	default public boolean dominates(Heuristic other) {
+		/**
+		 * Tells whether this heuristic is known to never estimate less than the other one
+		 * for the same goal, in which case taking the max of both never needs the other.
+		 * 
+		 * @param other  a heuristic for the same goal state.
+		 * @return true if eval(s) >= other.eval(s) for every state s.
+		 */
+		return other instanceof NoHeuristic;
 	}
 	default public String getSummary() {
 		/**
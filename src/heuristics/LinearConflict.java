@@ -0,0 +1,202 @@
+package heuristics;
+
+import database.State;
+
+public class LinearConflict implements Heuristic {
+	/**
+	 * Manhattan Distance plus linear conflicts (Hansson, Mayer & Yung, 1992).
+	 * 
+	 * Two tiles are in a linear conflict when they are both in their goal row (or column)
+	 * but in the wrong order. One of them has to leave the line and come back, which costs
+	 * two moves that Manhattan Distance doesn't count. For each line, the fewest tiles that
+	 * have to leave is the number of its goal tiles minus the longest run of them that is
+	 * already in order, so every such tile adds two moves.
+	 * 
+	 * A line is described by the goal position, along the line, of each of its cells' tiles
+	 * (or "none" for tiles that don't belong in the line), so there are (width+1)^width
+	 * possible lines. The penalty of every one of them is computed once per board width.
+	 */
+	
+	// what getSummary returns, so the heuristic can be described before it is built
+	public static final String SUMMARY = "Manhattan Distance plus linear conflicts in rows and columns";
+	
+	// PENALTY[width][key] is the extra moves needed by the line with the given key (see rowKey()).
+	private static final int[][] PENALTY = new int[State.MAX_WIDTH + 1][];
+	
+	static {
+		for (int width=2; width<=State.MAX_WIDTH; width++) {
+			PENALTY[width] = LinearConflict.penalties(width);
+		}
+	}
+	
+	private final GoalTable table;
+	private final int width;
+	private final int[] penalty;		// PENALTY[width]
+	private final int[] rowKey;			// rowKey[tile*cells + cell] is the tile's digit in its cell's row key
+	private final int[] colKey;			// colKey[tile*cells + cell] is the tile's digit in its cell's column key
+	
+	public LinearConflict(State goal) {
+		/**
+		 * Constructs a Linear Conflict heuristic and sets the goal state.
+		 */
+		this(new GoalTable(goal));
+	}
+	
+	public LinearConflict(GoalTable table) {
+		/**
+		 * Constructs a Linear Conflict heuristic that shares the lookup tables of a goal state.
+		 * 
+		 * The contribution of every tile in every cell to its row's and column's keys is
+		 * computed up front, so a line's key is a sum of table lookups.
+		 */
+		this.table = table;
+		this.width = table.getGoal().getWidth();
+		this.penalty = PENALTY[this.width];
+		
+		int cells = this.width * this.width;
+		this.rowKey = new int[16 * cells];
+		this.colKey = new int[16 * cells];
+		for (int tile=1; tile<cells; tile++) {
+			int goalRow = table.goalCell(tile) / this.width;
+			int goalCol = table.goalCell(tile) % this.width;
+			for (int cell=0; cell<cells; cell++) {
+				int row = cell / this.width;
+				int col = cell % this.width;
+				int rowDigit = goalRow == row ? goalCol : this.width;
+				int colDigit = goalCol == col ? goalRow : this.width;
+				this.rowKey[tile*cells + cell] = (rowDigit - this.width) * LinearConflict.power(this.width + 1, col);
+				this.colKey[tile*cells + cell] = (colDigit - this.width) * LinearConflict.power(this.width + 1, row);
+			}
+		}
+	}
+	
+	@Override
+	public int eval(State src) {
+		/**
+		 * Adds the penalty of every row and column to the Manhattan Distance.
+		 */
+		int dist = 0;
+		for (int cell=0; cell<src.getCells(); cell++) {
+			dist += this.table.distance(src.getCode(cell), cell);
+		}
+		for (int line=0; line<this.width; line++) {
+			dist += this.penalty[this.rowKey(src, line)] + this.penalty[this.colKey(src, line)];
+		}
+		return dist;
+	}
+	
+	@Override
+	public int evalMove(State parent, int parentValue, State child) {
+		/**
+		 * Only the moved tile changes its distance, and only the lines it left and entered
+		 * can change their penalties: its row for a move along the row, or both rows
+		 * otherwise (and likewise for columns).
+		 */
+		int from = child.getBlank();
+		int to = parent.getBlank();
+		int tile = child.getCode(to);
+		int dist = parentValue - this.table.distance(tile, from) + this.table.distance(tile, to);
+		
+		int fromRow = from / this.width, toRow = to / this.width;
+		int fromCol = from % this.width, toCol = to % this.width;
+		if (fromRow == toRow) {
+			dist += this.penalty[this.rowKey(child, toRow)] - this.penalty[this.rowKey(parent, toRow)];
+			dist += this.penalty[this.colKey(child, fromCol)] - this.penalty[this.colKey(parent, fromCol)];
+			dist += this.penalty[this.colKey(child, toCol)] - this.penalty[this.colKey(parent, toCol)];
+		}
+		else {
+			dist += this.penalty[this.colKey(child, toCol)] - this.penalty[this.colKey(parent, toCol)];
+			dist += this.penalty[this.rowKey(child, fromRow)] - this.penalty[this.rowKey(parent, fromRow)];
+			dist += this.penalty[this.rowKey(child, toRow)] - this.penalty[this.rowKey(parent, toRow)];
+		}
+		return dist;
+	}
+	
+	@Override
+	public int getCost() {
+		return 2;
+	}
+	
+	@Override
+	public boolean dominates(Heuristic other) {
+		/**
+		 * The penalties are never negative, so this is never less than the Manhattan Distance.
+		 */
+		return other instanceof NoHeuristic || other instanceof MisplacedTiles || other instanceof ManhattanDistance;
+	}
+	
+	@Override
+	public Heuristic forGoal(State goal) {
+		return new LinearConflict(goal);
+	}
+	
+	@Override
+	public String getSummary() {
+		return LinearConflict.SUMMARY;
+	}
+	
+	private int rowKey(State src, int row) {
+		/**
+		 * @return the key of a row: digit i is the goal column of the tile in column i if
+		 *         the tile belongs in this row, and width otherwise.
+		 */
+		int cells = this.width * this.width;
+		int key = LinearConflict.power(this.width + 1, this.width) - 1;	// every digit is width
+		for (int cell=row*this.width; cell<(row+1)*this.width; cell++) {
+			key += this.rowKey[src.getCode(cell)*cells + cell];
+		}
+		return key;
+	}
+	
+	private int colKey(State src, int col) {
+		/**
+		 * @return the key of a column: digit i is the goal row of the tile in row i if the
+		 *         tile belongs in this column, and width otherwise.
+		 */
+		int cells = this.width * this.width;
+		int key = LinearConflict.power(this.width + 1, this.width) - 1;	// every digit is width
+		for (int cell=col; cell<cells; cell+=this.width) {
+			key += this.colKey[src.getCode(cell)*cells + cell];
+		}
+		return key;
+	}
+	
+	private static int[] penalties(int width) {
+		/**
+		 * @return the penalty of every line key for the board width: two moves for every
+		 *         goal tile outside the longest increasing run of goal positions.
+		 */
+		int base = width + 1;
+		int[] penalty = new int[LinearConflict.power(base, width)];
+		int[] digits = new int[width];
+		int[] longest = new int[width];
+		
+		for (int key=0; key<penalty.length; key++) {
+			int tiles = 0;
+			int run = 0;
+			for (int i=0, k=key; i<width; i++, k/=base) {
+				digits[i] = k % base;
+				if (digits[i] == width)
+					continue;
+				tiles++;
+				
+				// the longest increasing run ending with this tile
+				longest[i] = 1;
+				for (int j=0; j<i; j++) {
+					if (digits[j] < digits[i] && longest[j] + 1 > longest[i])
+						longest[i] = longest[j] + 1;
+				}
+				run = Math.max(run, longest[i]);
+			}
+			penalty[key] = 2 * (tiles - run);
+		}
+		return penalty;
+	}
+	
+	private static int power(int base, int exponent) {
+		int result = 1;
+		for (int i=0; i<exponent; i++)
+			result *= base;
+		return result;
+	}
+}
@@ -4,42 +4,68 @@ import database.State;
 
 public class ManhattanDistance implements Heuristic {
 	
-	private State goal;
+	// what getSummary returns, so the heuristic can be described before it is built
+	public static final String SUMMARY = "Manhattan Distance of all non-blank tiles";
+	
+	private GoalTable table;
 	
 	public ManhattanDistance(State goal) {
 		/**
 		 * Constructs a Manhattan Distance heuristic and sets the goal state.
 		 */
-		this.goal = goal;
+		this(new GoalTable(goal));
+	}
+	
+	public ManhattanDistance(GoalTable table) {
+		/**
+		 * Constructs a Manhattan Distance heuristic that shares the lookup tables of a goal state.
+		 */
+		this.table = table;
 	}
 
 	@Override
-	public float eval(State src) {
+	public int eval(State src) {
 		/**
 		 * For each non-blank tile, determine the manhattan distance of where it is in the src and goal states.
 		 * Add all manhattan distances together.
 		 */
-		float dist = 0.0f;
+		int dist = 0;
 		
-		for (int i=0; i<3; i++) {
-			for (int j=0; j<3; j++) {
-				char find = src.getAt(i, j);
-				
-				if (find == '-')
-					continue;
-				
-				int goalRow = goal.getLocation(find).get("row") - 1;
-				int goalCol = goal.getLocation(find).get("column") - 1;
-				
-				dist += Math.abs(i-goalRow) + Math.abs(j-goalCol);
-			}
+		for (int cell=0; cell<src.getCells(); cell++) {
+			dist += this.table.distance(src.getCode(cell), cell);
 		}
 		
 		return dist;
 	}
 	
+	@Override
+	public int evalMove(State parent, int parentValue, State child) {
+		/**
+		 * Only the tile that moved into the parent's blank changes its distance, so
+		 * replace that tile's old distance with its new one.
+		 */
+		int from = child.getBlank();
+		int to = parent.getBlank();
+		int tile = child.getCode(to);
+		
+		return parentValue - this.table.distance(tile, from) + this.table.distance(tile, to);
+	}
+	
+	@Override
+	public boolean dominates(Heuristic other) {
+		/**
+		 * Every misplaced tile is at least one move away from its goal cell.
+		 */
+		return other instanceof NoHeuristic || other instanceof MisplacedTiles;
+	}
+	
+	@Override
+	public Heuristic forGoal(State goal) {
+		return new ManhattanDistance(goal);
+	}
+	
 	@Override
 	public String getSummary() {
-		return "Manhattan Distance of all non-blank tiles";
+		return ManhattanDistance.SUMMARY;
 	}
-}
\ No newline at end of file
+}
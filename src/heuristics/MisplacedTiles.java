@@ -4,35 +4,67 @@ import database.State;
 
 public class MisplacedTiles implements Heuristic {
 	
-	private State goal;
+	// what getSummary returns, so the heuristic can be described before it is built
+	public static final String SUMMARY = "Number of non-blank misplaced tiles";
+	
+	private GoalTable table;
 	
 	public MisplacedTiles(State goal) {
 		/**
 		 * Constructs a MisplacedTiles heuristic and sets the goal state.
 		 */
-		this.goal = goal;
+		this(new GoalTable(goal));
+	}
+	
+	public MisplacedTiles(GoalTable table) {
+		/**
+		 * Constructs a MisplacedTiles heuristic that shares the lookup tables of a goal state.
+		 */
+		this.table = table;
 	}
 
 	@Override
-	public float eval(State src) {
+	public int eval(State src) {
 		/**
 		 * Gets the number of non-blank tiles that are out of place.
 		 */
-		float numMisplaced = 0.0f;
+		int numMisplaced = 0;
 		
-		for (int i=0; i<3; i++) {
-			for (int j=0; j<3; j++) {
-				if (src.getAt(i, j) != '-' && src.getAt(i,j) != this.goal.getAt(i,j)) {
-					numMisplaced += 1;
-				}
+		for (int cell=0; cell<src.getCells(); cell++) {
+			if (this.table.isMisplaced(src.getCode(cell), cell)) {
+				numMisplaced += 1;
 			}
 		}
 		
 		return numMisplaced;
 	}
 	
+	@Override
+	public int evalMove(State parent, int parentValue, State child) {
+		/**
+		 * Only the tile that moved into the parent's blank can change from misplaced to
+		 * placed or back, so adjust the parent's count for that tile alone.
+		 */
+		int from = child.getBlank();
+		int to = parent.getBlank();
+		int tile = child.getCode(to);
+		
+		int numMisplaced = parentValue;
+		if (this.table.isMisplaced(tile, from))
+			numMisplaced -= 1;
+		if (this.table.isMisplaced(tile, to))
+			numMisplaced += 1;
+		
+		return numMisplaced;
+	}
+	
+	@Override
+	public Heuristic forGoal(State goal) {
+		return new MisplacedTiles(goal);
+	}
+	
 	@Override
 	public String getSummary() {
-		return "Number of non-blank misplaced tiles";
+		return MisplacedTiles.SUMMARY;
 	}
-}
\ No newline at end of file
+}
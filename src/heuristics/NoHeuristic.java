@@ -4,6 +4,9 @@ import database.State;
 
 public class NoHeuristic implements Heuristic {
 	
+	// what getSummary returns, so the heuristic can be described before it is built
+	public static final String SUMMARY = "No heuristic. normal breadth-first search.";
+	
 	private State goal;
 	
 	public NoHeuristic(State goal) {
@@ -14,16 +17,34 @@ public class NoHeuristic implements Heuristic {
 	}
 
 	@Override
-	public float eval(State src) {
+	public int eval(State src) {
 		/**
-		 * return 0.0
+		 * return 0
 		 */
-		float dist = 0.0f;
+		int dist = 0;
 		return dist;
 	}
 	
+	@Override
+	public int evalMove(State parent, int parentValue, State child) {
+		/**
+		 * return 0
+		 */
+		return 0;
+	}
+	
+	@Override
+	public int getCost() {
+		return 0;
+	}
+	
+	@Override
+	public Heuristic forGoal(State goal) {
+		return new NoHeuristic(goal);
+	}
+	
 	@Override
 	public String getSummary() {
-		return "No heuristic. normal breadth-first search.";
+		return NoHeuristic.SUMMARY;
 	}
 }
\ No newline at end of file
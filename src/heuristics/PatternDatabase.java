@@ -0,0 +1,533 @@
+package heuristics;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import database.State;
+
+public class PatternDatabase implements Heuristic {
+	/**
+	 * A disjoint additive pattern database heuristic.
+	 * 
+	 * The non-blank cells of the goal are split into groups (a partition). For each group,
+	 * only the tiles that belong in that group's cells are tracked and every other tile is
+	 * treated as a wildcard. A breadth-first search backwards
+	 * from the goal over these abstract states records how many moves of the group's own tiles
+	 * are needed to bring them home. Moves of the other tiles are free, so the values of the
+	 * different groups can be added together and the sum is still an underestimate.
+	 * 
+	 * A group's table only depends on the board width and the goal cells in the group, not on
+	 * the tile labels, so tables are shared by every goal with the same partition. Tables are
+	 * stored one byte per abstract state in files that are memory-mapped when loaded, letting
+	 * every solver process share the same pages.
+	 * 
+	 * Reflecting or rotating the board doesn't change how many moves the tiles need either
+	 * (see State.reflect), so a group shares its table with every group that is its image
+	 * under a symmetry. Each group is looked up in the table of its canonical image (the
+	 * lowest one), with every tile's cell moved by the same symmetry. The default partition
+	 * of the 15-puzzle uses this: its two groups of six are reflections of each other, so
+	 * only one six-tile table is built.
+	 */
+	
+	// what getSummary returns, before the partition, so the heuristic can be described before it is built
+	public static final String SUMMARY = "Additive pattern database";
+	
+	// File layout: MAGIC, width, number of cells in the group, the cells, one byte per entry.
+	private static final int MAGIC = 0x50444231;	// "PDB1"
+	
+	// Tables that have already been built or mapped, keyed by fileName().
+	private static final HashMap<String, ByteBuffer> TABLES = new HashMap<>();
+	
+	// The system property naming the directory used by PatternDatabase(State).
+	public static final String DIRECTORY_PROPERTY = "puzzle.pdb.dir";
+	
+	// Where PatternDatabase(State) keeps its table files (null for memory only).
+	private static volatile File defaultDirectory = System.getProperty(DIRECTORY_PROPERTY) == null
+			? null : new File(System.getProperty(DIRECTORY_PROPERTY));
+	
+	private final GoalTable table;
+	private final int width;				// the number of rows and columns of the board
+	private final int[][] partition;		// the goal cells of each group
+	private final ByteBuffer[] entries;		// the table of each group's canonical image
+	private final int[][] source;			// source[g][i] is the goal cell whose tile is entry cell i of group g's table
+	private final int[][] reflect;			// reflect[g][cell] is the cell the symmetry of group g moves the cell to
+	private final int[] groupOf;			// groupOf[goal cell] is the group index, or -1 for the blank
+	private final int[] offset;				// the index of each table's first entry
+	private final File directory;			// where the table files are kept (null for memory only)
+	
+	public PatternDatabase(State goal) {
+		/**
+		 * Constructs a pattern database heuristic with the default partition, keeping
+		 * the tables in the default directory (see setDefaultDirectory).
+		 */
+		this(goal, PatternDatabase.defaultPartition(goal), PatternDatabase.defaultDirectory);
+	}
+	
+	public PatternDatabase(State goal, int[][] partition, File directory) {
+		/**
+		 * Constructs a pattern database heuristic.
+		 * 
+		 * @param goal       the state we're trying to reach
+		 * @param partition  disjoint groups of goal cells. The goal's blank cell must not be in any group.
+		 * @param directory  where the table files are kept. Missing tables are built and written here.
+		 *                   If null, tables are only kept in memory.
+		 */
+		this.table = new GoalTable(goal);
+		this.width = goal.getWidth();
+		this.partition = partition;
+		this.entries = new ByteBuffer[partition.length];
+		this.source = new int[partition.length][];
+		this.reflect = new int[partition.length][goal.getCells()];
+		this.groupOf = new int[goal.getCells()];
+		this.offset = new int[partition.length];
+		this.directory = directory;
+		Arrays.fill(this.groupOf, -1);
+		
+		for (int g=0; g<partition.length; g++) {
+			for (int cell : partition[g]) {
+				if (cell == goal.getBlank() || this.groupOf[cell] != -1)
+					throw new IllegalArgumentException("Pattern database groups must be disjoint and exclude the blank.");
+				this.groupOf[cell] = g;
+			}
+			
+			int symmetry = PatternDatabase.canonicalSymmetry(this.width, partition[g]);
+			int[] canonical = PatternDatabase.reflect(this.width, symmetry, partition[g]);
+			this.source[g] = new int[canonical.length];
+			for (int cell : partition[g])
+				this.source[g][Arrays.binarySearch(canonical, State.reflectCell(this.width, symmetry, cell))] = cell;
+			for (int cell=0; cell<goal.getCells(); cell++)
+				this.reflect[g][cell] = State.reflectCell(this.width, symmetry, cell);
+			
+			this.entries[g] = PatternDatabase.getTable(this.width, canonical, directory);
+			this.offset[g] = this.entries[g].limit() - PatternDatabase.size(this.width, partition[g].length);
+		}
+	}
+	
+	public static void setDefaultDirectory(File directory) {
+		/**
+		 * Sets where pattern databases built with the default partition keep their table
+		 * files, so that every solver process can map the same ones instead of building them.
+		 * It starts as the directory named by the puzzle.pdb.dir system property.
+		 * 
+		 * @param directory  where the table files are kept, or null to keep tables in memory only
+		 */
+		PatternDatabase.defaultDirectory = directory;
+	}
+	
+	public static File getDefaultDirectory() {
+		/**
+		 * @return where pattern databases built with the default partition keep their table files (null for memory only).
+		 */
+		return PatternDatabase.defaultDirectory;
+	}
+	
+	public static int[][] defaultPartition(State goal) {
+		/**
+		 * Splits the non-blank goal cells into groups small enough to build quickly: two
+		 * groups of four in row-major order for the 8-puzzle, and groups of six, six and three
+		 * for the 15-puzzle. When the 15-puzzle's blank is in a corner, the groups are the
+		 * cells on either side of the diagonal through that corner and the rest of the
+		 * diagonal, which share one table of about 5.8 MB (plus one of 3.4 KB). Otherwise
+		 * they're taken in row-major order and need two tables of 5.8 MB.
+		 * 
+		 * @return the default partition for the goal.
+		 */
+		switch (goal.getWidth()) {
+			case 2:  return PatternDatabase.partition(goal, 3);
+			case 3:  return PatternDatabase.partition(goal, 4, 4);
+		}
+		
+		int width = goal.getWidth();
+		int symmetry = State.canonicalSymmetry(width, goal.getBlank());
+		if (State.reflectCell(width, symmetry, goal.getBlank()) != 0)
+			return PatternDatabase.partition(goal, 6, 6, 3);
+		
+		// with the blank moved to cell 0: above the diagonal, below it, and on it
+		int[][] triangles = new int[3][];
+		int[] sizes = new int[3];
+		for (int i=0; i<3; i++)
+			triangles[i] = new int[i < 2 ? 6 : 3];
+		int inverse = State.inverseSymmetry(symmetry);
+		for (int cell=1; cell<width*width; cell++) {
+			int row = cell / width;
+			int col = cell % width;
+			int i = col > row ? 0 : col < row ? 1 : 2;
+			triangles[i][sizes[i]++] = State.reflectCell(width, inverse, cell);
+		}
+		for (int[] group : triangles)
+			Arrays.sort(group);
+		return triangles;
+	}
+	
+	public static int[][] partition(State goal, int... sizes) {
+		/**
+		 * Splits the non-blank goal cells, in row-major order, into consecutive groups.
+		 * 
+		 * @param goal   the state we're trying to reach
+		 * @param sizes  the number of cells in each group. They must add up to the number of tiles.
+		 * @return the partition.
+		 */
+		int total = 0;
+		for (int size : sizes)
+			total += size;
+		if (total != goal.getCells() - 1)
+			throw new IllegalArgumentException("Partition sizes must add up to the number of tiles.");
+		
+		int[][] partition = new int[sizes.length][];
+		int cell = 0;
+		for (int g=0; g<sizes.length; g++) {
+			partition[g] = new int[sizes[g]];
+			for (int i=0; i<sizes[g]; i++) {
+				if (cell == goal.getBlank())
+					cell++;
+				partition[g][i] = cell++;
+			}
+		}
+		return partition;
+	}
+	
+	@Override
+	public int eval(State src) {
+		/**
+		 * Adds up the number of moves each group's tiles need to reach their goal cells.
+		 */
+		long cells = this.locate(src);
+		int dist = 0;
+		
+		for (int g=0; g<this.partition.length; g++) {
+			dist += this.lookup(g, cells);
+		}
+		
+		return dist;
+	}
+	
+	@Override
+	public int evalMove(State parent, int parentValue, State child) {
+		/**
+		 * Only the group of the tile that moved can change, so swap that group's
+		 * value in the parent for its value in the child.
+		 */
+		int tile = child.getCode(parent.getBlank());
+		int g = this.groupOf[this.table.goalCell(tile)];
+		
+		return parentValue - this.lookup(g, this.locate(parent)) + this.lookup(g, this.locate(child));
+	}
+	
+	@Override
+	public int getCost() {
+		return 4;
+	}
+	
+	@Override
+	public boolean dominates(Heuristic other) {
+		/**
+		 * Each group's tiles need at least their Manhattan Distances in moves of their own.
+		 */
+		return other instanceof NoHeuristic || other instanceof MisplacedTiles || other instanceof ManhattanDistance;
+	}
+	
+	@Override
+	public Heuristic forGoal(State goal) {
+		/**
+		 * Uses the new goal's default partition if this heuristic uses its goal's default
+		 * partition, and otherwise splits the new goal's cells into groups of the same sizes.
+		 */
+		if (Arrays.deepEquals(this.partition, PatternDatabase.defaultPartition(this.table.getGoal())))
+			return new PatternDatabase(goal, PatternDatabase.defaultPartition(goal), this.directory);
+		
+		int[] sizes = new int[this.partition.length];
+		for (int g=0; g<sizes.length; g++)
+			sizes[g] = this.partition[g].length;
+		return new PatternDatabase(goal, PatternDatabase.partition(goal, sizes), this.directory);
+	}
+	
+	@Override
+	public String getSummary() {
+		String sizes = "";
+		for (int[] group : this.partition)
+			sizes += (sizes.isEmpty() ? "" : "-") + group.length;
+		return PatternDatabase.SUMMARY + " (" + sizes + " partition)";
+	}
+	
+	private long locate(State src) {
+		/**
+		 * @return the cell of every tile packed 4 bits per tile, indexed by the tile's goal cell.
+		 */
+		long cells = 0L;
+		for (int cell=0; cell<src.getCells(); cell++) {
+			int tile = src.getCode(cell);
+			if (tile != State.BLANK)
+				cells |= ((long)cell) << (4*this.table.goalCell(tile));
+		}
+		return cells;
+	}
+	
+	private int lookup(int g, long cells) {
+		/**
+		 * @param g      the group to look up
+		 * @param cells  the cells of the tiles as returned by locate()
+		 * @return the number of moves the group's tiles need to reach their goal cells.
+		 */
+		int[] group = this.partition[g];
+		int n = this.width * this.width;
+		int rank = 0;
+		int used = 0;
+		for (int i=0; i<group.length; i++) {
+			int cell = this.reflect[g][(int)(cells >>> (4*this.source[g][i])) & 0xF];
+			rank = rank*(n - i) + cell - Integer.bitCount(used & ((1 << cell) - 1));
+			used |= 1 << cell;
+		}
+		return this.entries[g].get(this.offset[g] + rank) & 0xFF;
+	}
+	
+	private static int canonicalSymmetry(int width, int[] group) {
+		/**
+		 * @return the first symmetry that moves the group of cells to its lowest image, comparing
+		 *         the sorted cells of the images in order.
+		 */
+		int best = 0;
+		int[] lowest = PatternDatabase.reflect(width, 0, group);
+		for (int symmetry=1; symmetry<State.SYMMETRIES; symmetry++) {
+			int[] image = PatternDatabase.reflect(width, symmetry, group);
+			for (int i=0; i<image.length; i++) {
+				if (image[i] != lowest[i]) {
+					if (image[i] < lowest[i]) {
+						best = symmetry;
+						lowest = image;
+					}
+					break;
+				}
+			}
+		}
+		return best;
+	}
+	
+	private static int[] reflect(int width, int symmetry, int[] group) {
+		/**
+		 * @return the cells the symmetry moves the group's cells to, sorted.
+		 */
+		int[] image = new int[group.length];
+		for (int i=0; i<group.length; i++)
+			image[i] = State.reflectCell(width, symmetry, group[i]);
+		Arrays.sort(image);
+		return image;
+	}
+	
+	private static int size(int width, int k) {
+		/**
+		 * @return the number of ways k tiles can be placed on a board of the given width.
+		 */
+		int size = 1;
+		for (int i=0; i<k; i++)
+			size *= width*width - i;
+		return size;
+	}
+	
+	private static String fileName(int width, int[] group) {
+		/**
+		 * @return the name of the file holding the table for a group of goal cells.
+		 */
+		String name = "pdb-" + width;
+		for (int cell : group)
+			name += "-" + cell;
+		return name + ".bin";
+	}
+	
+	private static synchronized ByteBuffer getTable(int width, int[] group, File directory) {
+		/**
+		 * Gets the table for a group of goal cells, mapping it from the directory if it was
+		 * already built there and building it otherwise. Tables are cached for the life of the JVM.
+		 * 
+		 * @param width      the number of rows and columns of the board
+		 * @param group      the goal cells of the group
+		 * @param directory  where table files are kept, or null to keep tables in memory only
+		 * @return the table, including its header.
+		 */
+		String name = PatternDatabase.fileName(width, group);
+		ByteBuffer entries = TABLES.get(name);
+		if (entries != null)
+			return entries;
+		
+		try {
+			File file = directory == null ? null : new File(directory, name);
+			if (file != null && file.exists()) {
+				entries = PatternDatabase.map(file, width, group);
+			}
+			else {
+				byte[] built = PatternDatabase.build(width, group);
+				if (file != null) {
+					PatternDatabase.write(file, built);
+					entries = PatternDatabase.map(file, width, group);
+				}
+				else {
+					entries = ByteBuffer.wrap(built);
+				}
+			}
+		}
+		catch (IOException e) {
+			throw new IllegalStateException("Could not load pattern database " + name, e);
+		}
+		
+		TABLES.put(name, entries);
+		return entries;
+	}
+	
+	private static byte[] build(int width, int[] group) {
+		/**
+		 * Runs a breadth-first search backwards from the goal over the positions of the group's
+		 * tiles. An abstract state is the cell of each of the group's tiles (in the order of
+		 * their goal cells), and a move slides one of them into a neighboring cell that none of
+		 * the others occupy.
+		 * 
+		 * @return the table file contents: the header followed by one byte per abstract state.
+		 */
+		int k = group.length;
+		int header = 4 + 1 + 1 + k;
+		byte[] table = new byte[header + PatternDatabase.size(width, k)];
+		Arrays.fill(table, header, table.length, (byte)0xFF);
+		
+		ByteBuffer.wrap(table).putInt(MAGIC).put((byte)width).put((byte)k);
+		for (int i=0; i<k; i++)
+			table[6 + i] = (byte)group[i];
+		
+		int[][] neighbors = new int[width*width][];
+		for (int cell=0; cell<neighbors.length; cell++)
+			neighbors[cell] = PatternDatabase.neighbors(width, cell);
+		
+		int[] cells = new int[k];
+		int[] frontier = {PatternDatabase.rank(width, group)};
+		int frontierSize = 1;
+		table[header + frontier[0]] = 0;
+		
+		for (int depth=0; frontierSize > 0; depth++) {
+			int[] next = new int[Math.max(16, frontierSize * 2)];
+			int nextSize = 0;
+			
+			for (int f=0; f<frontierSize; f++) {
+				PatternDatabase.unrank(width, frontier[f], cells);
+				int used = 0;
+				for (int cell : cells)
+					used |= 1 << cell;
+				
+				for (int i=0; i<k; i++) {
+					int from = cells[i];
+					for (int to : neighbors[from]) {
+						if ((used & (1 << to)) != 0)
+							continue;
+						cells[i] = to;
+						int rank = PatternDatabase.rank(width, cells);
+						cells[i] = from;
+						if (table[header + rank] != (byte)0xFF)
+							continue;
+						table[header + rank] = (byte)(depth + 1);
+						if (nextSize == next.length)
+							next = Arrays.copyOf(next, next.length * 2);
+						next[nextSize++] = rank;
+					}
+				}
+			}
+			frontier = next;
+			frontierSize = nextSize;
+		}
+		
+		return table;
+	}
+	
+	private static int[] neighbors(int width, int cell) {
+		/**
+		 * @return the cells adjacent to the cell on a board of the given width.
+		 */
+		ArrayList<Integer> cells = new ArrayList<>(4);
+		if (cell >= width)
+			cells.add(cell - width);
+		if (cell < width*width - width)
+			cells.add(cell + width);
+		if (cell % width > 0)
+			cells.add(cell - 1);
+		if (cell % width < width - 1)
+			cells.add(cell + 1);
+		
+		int[] result = new int[cells.size()];
+		for (int i=0; i<result.length; i++)
+			result[i] = cells.get(i);
+		return result;
+	}
+	
+	private static int rank(int width, int[] cells) {
+		/**
+		 * @return the index of a placement of distinct cells among all placements of that many cells.
+		 */
+		int n = width * width;
+		int rank = 0;
+		int used = 0;
+		for (int i=0; i<cells.length; i++) {
+			rank = rank*(n - i) + cells[i] - Integer.bitCount(used & ((1 << cells[i]) - 1));
+			used |= 1 << cells[i];
+		}
+		return rank;
+	}
+	
+	private static void unrank(int width, int rank, int[] cells) {
+		/**
+		 * The inverse of rank(): fills cells with the placement at the given index.
+		 */
+		int n = width * width;
+		int k = cells.length;
+		for (int i=k-1; i>=0; i--) {
+			cells[i] = rank % (n - i);
+			rank /= n - i;
+		}
+		int used = 0;
+		for (int i=0; i<k; i++) {
+			// the cells[i]-th unused cell
+			int cell = -1;
+			for (int free = cells[i]; free >= 0; free--) {
+				do {
+					cell++;
+				} while ((used & (1 << cell)) != 0);
+			}
+			cells[i] = cell;
+			used |= 1 << cell;
+		}
+	}
+	
+	private static void write(File file, byte[] table) throws IOException {
+		/**
+		 * Writes a table to a temporary file and moves it into place so that other
+		 * processes never map a partially written table.
+		 */
+		File directory = file.getAbsoluteFile().getParentFile();
+		directory.mkdirs();
+		File tmp = File.createTempFile(file.getName(), ".tmp", directory);
+		Files.write(tmp.toPath(), table);
+		Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+	
+	private static ByteBuffer map(File file, int width, int[] group) throws IOException {
+		/**
+		 * Memory-maps a table file and checks that its header matches the group.
+		 */
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+			ByteBuffer entries = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			
+			boolean valid = entries.limit() == 4 + 1 + 1 + group.length + PatternDatabase.size(width, group.length)
+					&& entries.getInt(0) == MAGIC
+					&& entries.get(4) == width
+					&& entries.get(5) == group.length;
+			for (int i=0; valid && i<group.length; i++)
+				valid = entries.get(6 + i) == group[i];
+			
+			if (!valid)
+				throw new IOException("Corrupt pattern database file " + file);
+			return entries;
+		}
+	}
+}
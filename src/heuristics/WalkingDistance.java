@@ -0,0 +1,240 @@
+package heuristics;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+import database.State;
+
+public class WalkingDistance implements Heuristic {
+	/**
+	 * Walking Distance (Takahashi, 2002).
+	 * 
+	 * Forget which column every tile is in and only count, for every row, how many of its
+	 * tiles belong in each row. A vertical move carries one tile into the blank's row, and
+	 * no other move changes the counts, so the fewest vertical moves needed to solve the
+	 * puzzle is at least the fewest moves needed to turn the counts into the goal's. The
+	 * same holds for columns and horizontal moves, and since every move is either vertical
+	 * or horizontal, the sum of both is admissible. It is usually a lot closer than the
+	 * Manhattan Distance, because it sees tiles that have to get out of each other's way.
+	 * 
+	 * The distance from every arrangement of counts to the goal's is found once with a
+	 * breadth-first search and kept in a table. The table only depends on the board width
+	 * and the line the goal's blank is in, so the rows and columns of every goal share
+	 * the same few tables.
+	 */
+	
+	// what getSummary returns, so the heuristic can be described before it is built
+	public static final String SUMMARY = "Walking Distance of the rows plus Walking Distance of the columns";
+	
+	// TABLES[width*MAX_WIDTH + blank line] is built the first time it's needed
+	private static final Table[] TABLES = new Table[(State.MAX_WIDTH + 1) * State.MAX_WIDTH];
+	
+	private final int width;
+	private final Table rows;		// the table for the rows, found by the goal's blank row
+	private final Table cols;		// the table for the columns, found by the goal's blank column
+	private final long[] rowUnit;	// rowUnit[tile*cells + cell] is the tile's count in its cell's row key
+	private final long[] colUnit;	// colUnit[tile*cells + cell] is the tile's count in its cell's column key
+	
+	public WalkingDistance(State goal) {
+		/**
+		 * Constructs a Walking Distance heuristic and sets the goal state.
+		 */
+		this(new GoalTable(goal));
+	}
+	
+	public WalkingDistance(GoalTable table) {
+		/**
+		 * Constructs a Walking Distance heuristic for the goal of the lookup tables.
+		 */
+		State goal = table.getGoal();
+		this.width = goal.getWidth();
+		this.rows = WalkingDistance.getTable(this.width, goal.getBlank() / this.width);
+		this.cols = WalkingDistance.getTable(this.width, goal.getBlank() % this.width);
+		
+		int cells = this.width * this.width;
+		this.rowUnit = new long[16 * cells];
+		this.colUnit = new long[16 * cells];
+		for (int tile=1; tile<cells; tile++) {
+			int goalRow = table.goalCell(tile) / this.width;
+			int goalCol = table.goalCell(tile) % this.width;
+			for (int cell=0; cell<cells; cell++) {
+				this.rowUnit[tile*cells + cell] = Table.unit(this.width, cell / this.width, goalRow);
+				this.colUnit[tile*cells + cell] = Table.unit(this.width, cell % this.width, goalCol);
+			}
+		}
+	}
+	
+	@Override
+	public int eval(State src) {
+		/**
+		 * Adds the vertical moves needed by the rows to the horizontal moves needed by the columns.
+		 */
+		return this.rows.distance(this.rowKey(src)) + this.cols.distance(this.colKey(src));
+	}
+	
+	@Override
+	public int evalMove(State parent, int parentValue, State child) {
+		/**
+		 * A vertical move only changes the row counts and a horizontal one only the column
+		 * counts, so only one of the two distances needs to be looked up again.
+		 */
+		if (child.getBlank() / this.width != parent.getBlank() / this.width)
+			return parentValue - this.rows.distance(this.rowKey(parent)) + this.rows.distance(this.rowKey(child));
+		return parentValue - this.cols.distance(this.colKey(parent)) + this.cols.distance(this.colKey(child));
+	}
+	
+	@Override
+	public int getCost() {
+		return 3;
+	}
+	
+	@Override
+	public boolean dominates(Heuristic other) {
+		/**
+		 * Every tile outside its goal row needs a vertical move and every tile outside its
+		 * goal column a horizontal one, so every misplaced tile adds at least one move.
+		 */
+		return other instanceof NoHeuristic || other instanceof MisplacedTiles;
+	}
+	
+	@Override
+	public Heuristic forGoal(State goal) {
+		return new WalkingDistance(goal);
+	}
+	
+	@Override
+	public String getSummary() {
+		return WalkingDistance.SUMMARY;
+	}
+	
+	private long rowKey(State src) {
+		/**
+		 * @return the key of the state's row counts (see Table).
+		 */
+		int cells = src.getCells();
+		long key = Table.blank(this.width, src.getBlank() / this.width);
+		for (int cell=0; cell<cells; cell++) {
+			key += this.rowUnit[src.getCode(cell)*cells + cell];
+		}
+		return key;
+	}
+	
+	private long colKey(State src) {
+		/**
+		 * @return the key of the state's column counts (see Table).
+		 */
+		int cells = src.getCells();
+		long key = Table.blank(this.width, src.getBlank() % this.width);
+		for (int cell=0; cell<cells; cell++) {
+			key += this.colUnit[src.getCode(cell)*cells + cell];
+		}
+		return key;
+	}
+	
+	private static synchronized Table getTable(int width, int blankLine) {
+		/**
+		 * @return the table for the board width and the line of the goal's blank.
+		 */
+		int index = width * State.MAX_WIDTH + blankLine;
+		if (TABLES[index] == null) {
+			TABLES[index] = new Table(width, blankLine);
+		}
+		return TABLES[index];
+	}
+	
+	private static class Table {
+		/**
+		 * The number of moves from every arrangement of line counts to the goal's.
+		 * 
+		 * An arrangement is packed into a long: 3 bits for every pair of lines (the number of
+		 * tiles in one line that belong in the other) followed by the line of the blank. The
+		 * keys of all reachable arrangements (24,964 of them for the 15-puzzle) are kept
+		 * sorted, so a distance is found with a binary search.
+		 */
+		
+		private final long[] keys;		// every reachable arrangement, sorted
+		private final byte[] moves;		// moves[i] is the distance from keys[i] to the goal
+		
+		public Table(int width, int blankLine) {
+			/**
+			 * Runs a breadth-first search from the goal's arrangement, in which every line
+			 * has all of its own tiles and the blank's line is one tile short.
+			 * 
+			 * @param width      the width of the board
+			 * @param blankLine  the line the goal's blank is in
+			 */
+			long goal = Table.blank(width, blankLine);
+			for (int line=0; line<width; line++) {
+				goal += (line == blankLine ? width - 1 : width) * Table.unit(width, line, line);
+			}
+			
+			HashMap<Long, Integer> distance = new HashMap<>();
+			long[] queue = { goal };
+			int head = 0;
+			int tail = 1;
+			distance.put(goal, 0);
+			
+			while (head < tail) {
+				long key = queue[head++];
+				int moves = distance.get(key);
+				int blank = (int)(key >>> Table.blankShift(width));
+				
+				// move a tile into the blank's line from the line above or below
+				for (int from=blank-1; from<=blank+1; from+=2) {
+					if (from < 0 || from >= width)
+						continue;
+					for (int goalLine=0; goalLine<width; goalLine++) {
+						if (Table.count(key, width, from, goalLine) == 0)
+							continue;
+						long next = key - Table.unit(width, from, goalLine) + Table.unit(width, blank, goalLine)
+								- Table.blank(width, blank) + Table.blank(width, from);
+						if (distance.putIfAbsent(next, moves + 1) == null) {
+							if (tail == queue.length)
+								queue = Arrays.copyOf(queue, 2 * tail);
+							queue[tail++] = next;
+						}
+					}
+				}
+			}
+			
+			this.keys = Arrays.copyOf(queue, tail);
+			Arrays.sort(this.keys);
+			this.moves = new byte[tail];
+			for (int i=0; i<tail; i++) {
+				this.moves[i] = (byte)(int)distance.get(this.keys[i]);
+			}
+		}
+		
+		public int distance(long key) {
+			/**
+			 * @return the number of moves from the arrangement to the goal's.
+			 */
+			int index = Arrays.binarySearch(this.keys, key);
+			if (index < 0)
+				throw new IllegalArgumentException("Not an arrangement of this table: " + Long.toHexString(key));
+			return this.moves[index];
+		}
+		
+		public static long unit(int width, int line, int goalLine) {
+			/**
+			 * @return the key of one tile in the line that belongs in the goal line.
+			 */
+			return 1L << (3 * (line*width + goalLine));
+		}
+		
+		public static long blank(int width, int line) {
+			/**
+			 * @return the key of the blank being in the line.
+			 */
+			return (long)line << Table.blankShift(width);
+		}
+		
+		private static int count(long key, int width, int line, int goalLine) {
+			return (int)(key >>> (3 * (line*width + goalLine))) & 7;
+		}
+		
+		private static int blankShift(int width) {
+			return 3 * width * width;
+		}
+	}
+}
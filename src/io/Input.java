@@ -1,44 +1,61 @@
 package io;
 
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Scanner;
+import java.util.function.Function;
 
+import control_strategies.AStar;
+import control_strategies.AnytimeAStar;
+import control_strategies.BidirectionalSearch;
+import control_strategies.ControlStrategy;
+import control_strategies.IDAStar;
+import control_strategies.ParallelAStar;
+import control_strategies.TableLookup;
+import control_strategies.WeightedAStar;
+import database.DistanceTable;
 import database.State;
 import heuristics.Heuristic;
+import heuristics.LinearConflict;
 import heuristics.NoHeuristic;
 import heuristics.CompositeHeuristic;
 import heuristics.ManhattanDistance;
 import heuristics.MisplacedTiles;
 import heuristics.NoHeuristic;
+import heuristics.PatternDatabase;
+import heuristics.WalkingDistance;
 
 public class Input {
 	/**
 	 * This class handles all input operations via static methods.
-	 * An instance of the Input class holds the initial state, goal state, and heuristic.
+	 * An instance of the Input class holds the initial state, goal state, heuristic, and control strategy.
 	 */
 	
 	
 	// STATIC
 	private static Scanner userInput;   // Used to read from console
+	private static final String[] HEURISTIC_OPTIONS = {"a", "b", "c", "d", "e", "f", "g", "h"};
+	private static final int STRONGEST_CACHE_SIZE = 1 << 16;	// results memoized by option "h"
 	
 	
 	// INSTANCE
 	private State initial, goal;		// The initial and goal states for the puzzle
 	private Heuristic heuristic;		
+	private ControlStrategy controlStrategy;	// The search algorithm used to solve the puzzle
 	
-	private Input(State initial, State goal, Heuristic heuristic) {
+	private Input(State initial, State goal, Heuristic heuristic, ControlStrategy controlStrategy) {
 		/**
 		 * An object carrying all necessary information from the user.
 		 * 
-		 * @param initial    the initial state to start the puzzle with.
-		 * @param goal       the goal state we're trying to get to.
-		 * @param heuristic  the heuristic used to solve the 8-puzzle more efficiently.
+		 * @param initial          the initial state to start the puzzle with.
+		 * @param goal             the goal state we're trying to get to.
+		 * @param heuristic        the heuristic used to solve the 8-puzzle more efficiently.
+		 * @param controlStrategy  the search algorithm used to solve the 8-puzzle.
 		 */
 		this.initial = initial;
 		this.goal = goal;
 		this.heuristic = heuristic;
+		this.controlStrategy = controlStrategy;
 	}
 	
 	public State getInitial() {
@@ -62,6 +79,13 @@ public class Input {
 		return this.heuristic;
 	}
 	
+	public ControlStrategy getControlStrategy() {
+		/**
+		 * @return the control strategy
+		 */
+		return this.controlStrategy;
+	}
+	
 	static public Input getHardCoded() {
 		/**
 		 * A helper method for testing the program so we don't have to enter
@@ -89,13 +113,15 @@ public class Input {
 		//Heuristic heuristic = new MisplacedTiles(goal);
 		Heuristic heuristic = new ManhattanDistance(goal);
 		//Heuristic heuristic = new CompositeHeuristic(goal);
+		ControlStrategy controlStrategy = new AStar();
+		//ControlStrategy controlStrategy = new IDAStar();
 		
-		return new Input(initial, goal, heuristic);
+		return new Input(initial, goal, heuristic, controlStrategy);
 	}
 	
 	static public Input getFromUser() {
 		/**
-		 * Read the initial state, goal state, and heuristic from the user
+		 * Read the initial state, goal state, heuristic, and control strategy from the user
 		 * and return an Input object carrying the information.
 		 * 
 		 * @return the input read in from the user.
@@ -105,52 +131,216 @@ public class Input {
 		
 		// get initial state
 		Output.printQueryForInitialState();
-		State initial = Input.readState();
+		State initial = Input.readState(0);
 		
 		// get goal state
 		Output.printQueryForGoalState();
-		State goal = Input.readState();
+		State goal = Input.readState(initial.getWidth());
+		
+		// get heuristic (only the chosen one is built, since some take a while)
+		HashMap<String, Function<State, Heuristic>> heuristicMapping = Input.getHeuristicOptions();
+		Heuristic heuristic = heuristicMapping.get(Input.readHeuristicOption(Input.getHeuristicSummaries())).apply(goal);
 		
-		// get heuristic
-		HashMap<String, Heuristic> heuristicMapping = new HashMap<>();
-		heuristicMapping.put("a", new MisplacedTiles(goal));
-		heuristicMapping.put("b", new ManhattanDistance(goal));
-		heuristicMapping.put("c", new CompositeHeuristic(goal));
-		heuristicMapping.put("d", new NoHeuristic(goal));
-		Heuristic heuristic = heuristicMapping.get(Input.readHeuristicOption(heuristicMapping));
+		// get control strategy
+		HashMap<String, ControlStrategy> strategyMapping = Input.getControlStrategyOptions();
+		ControlStrategy controlStrategy = strategyMapping.get(Input.readControlStrategyOption(strategyMapping));
 		
 		userInput.close();
 		
-		return new Input(initial, goal, heuristic);
+		return new Input(initial, goal, heuristic, controlStrategy);
+	}
+	
+	static public Input parse(String line) {
+		/**
+		 * Reads a puzzle from a single line of text, as used by batch mode:
+		 * 
+		 *     INITIAL GOAL [HEURISTIC] [CONTROL_STRATEGY]
+		 * 
+		 * The states are written in row-major order, e.g. "12345678-" (see parseState).
+		 * HEURISTIC and CONTROL_STRATEGY are the same options offered interactively
+		 * ("a", "b", ...) and default to Manhattan Distance and A*.
+		 * 
+		 * @param line  the line to read
+		 * @return the puzzle on the line.
+		 * @throws IllegalArgumentException if the line isn't a valid puzzle.
+		 */
+		String[] fields = line.trim().split("\\s+");
+		if (fields.length < 2 || fields.length > 4) {
+			throw new IllegalArgumentException("expected INITIAL GOAL [HEURISTIC] [CONTROL_STRATEGY]");
+		}
+		
+		State initial = Input.parseState(fields[0]);
+		State goal = Input.parseState(fields[1]);
+		if (initial.getWidth() != goal.getWidth()) {
+			throw new IllegalArgumentException("the initial and goal states must be the same size");
+		}
+		
+		Heuristic heuristic = Input.getHeuristicOption(fields.length > 2 ? fields[2] : "b", goal);
+		if (heuristic == null) {
+			throw new IllegalArgumentException("'" + fields[2] + "' is not a valid heuristic option");
+		}
+		
+		ControlStrategy controlStrategy = Input.getControlStrategyOption(fields.length > 3 ? fields[3] : "a");
+		if (controlStrategy == null) {
+			throw new IllegalArgumentException("'" + fields[3] + "' is not a valid control strategy option");
+		}
+		
+		return new Input(initial, goal, heuristic, controlStrategy);
+	}
+	
+	static public State parseState(String text) {
+		/**
+		 * Reads a state written in row-major order: 4 characters for the 3-puzzle
+		 * (e.g. "123-"), 9 for the 8-puzzle (e.g. "12345678-") or 16 for the 15-puzzle
+		 * (e.g. "123456789ABCDEF-").
+		 * 
+		 * @param text  the state as text
+		 * @return the state.
+		 * @throws IllegalArgumentException if the text doesn't hold each tile and a hyphen exactly once.
+		 */
+		int width = (int)Math.round(Math.sqrt(text.length()));
+		if (width*width != text.length() || width < 2 || width > State.MAX_WIDTH) {
+			throw new IllegalArgumentException("'" + text + "' is not 4, 9 or 16 characters long");
+		}
+		
+		HashSet<Character> remaining = new HashSet<>();
+		remaining.add('-');
+		for (int tile=1; tile<width*width; tile++) {
+			remaining.add(State.toChar(tile, width));
+		}
+		
+		char[][] board = new char[width][width];
+		for (int i=0; i<text.length(); i++) {
+			char cur = text.charAt(i);
+			if (!remaining.remove(cur)) {
+				throw new IllegalArgumentException("'" + text + "' has an illegal or duplicate character '" + cur + "'");
+			}
+			board[i / width][i % width] = cur;
+		}
+		return new State(board);
+	}
+	
+	static public HashMap<String, Function<State, Heuristic>> getHeuristicOptions() {
+		/**
+		 * @return builders of the heuristics the user can choose from, keyed by option
+		 *         ("a" -> MisplacedTiles, etc.). Each one builds its heuristic for a goal state.
+		 */
+		HashMap<String, Function<State, Heuristic>> heuristicMapping = new HashMap<>();
+		for (final String option : HEURISTIC_OPTIONS) {
+			heuristicMapping.put(option, goal -> Input.getHeuristicOption(option, goal));
+		}
+		return heuristicMapping;
+	}
+	
+	static public HashMap<String, String> getHeuristicSummaries() {
+		/**
+		 * @return a summary of each heuristic the user can choose from, keyed by option, so
+		 *         the options can be listed without building any heuristic.
+		 */
+		HashMap<String, String> summaries = new HashMap<>();
+		for (String option : HEURISTIC_OPTIONS) {
+			summaries.put(option, Input.getHeuristicSummary(option));
+		}
+		return summaries;
+	}
+	
+	static public String getHeuristicSummary(String option) {
+		/**
+		 * @param option  the user's choice of heuristic ("a", "b", ...)
+		 * @return a summary of the chosen heuristic, or null if the option isn't valid.
+		 */
+		switch (option) {
+			case "a": return MisplacedTiles.SUMMARY;
+			case "b": return ManhattanDistance.SUMMARY;
+			case "c": return CompositeHeuristic.SUMMARY;
+			case "d": return NoHeuristic.SUMMARY;
+			case "e": return PatternDatabase.SUMMARY + " (default partition)";
+			case "f": return LinearConflict.SUMMARY;
+			case "g": return WalkingDistance.SUMMARY;
+			case "h": return CompositeHeuristic.strongestSummary(true, STRONGEST_CACHE_SIZE);
+			default: return null;
+		}
+	}
+	
+	static public Heuristic getHeuristicOption(String option, State goal) {
+		/**
+		 * @param option  the user's choice of heuristic ("a", "b", ...)
+		 * @param goal    the goal state the heuristic estimates the distance to.
+		 * @return the chosen heuristic, or null if the option isn't valid.
+		 */
+		switch (option) {
+			case "a": return new MisplacedTiles(goal);
+			case "b": return new ManhattanDistance(goal);
+			case "c": return new CompositeHeuristic(goal);
+			case "d": return new NoHeuristic(goal);
+			case "e": return new PatternDatabase(goal);
+			case "f": return new LinearConflict(goal);
+			case "g": return new WalkingDistance(goal);
+			case "h": return new CompositeHeuristic(goal, true, STRONGEST_CACHE_SIZE);
+			default: return null;
+		}
+	}
+	
+	static public HashMap<String, ControlStrategy> getControlStrategyOptions() {
+		/**
+		 * @return the control strategies the user can choose from, keyed by option ("a" -> AStar, etc.)
+		 */
+		HashMap<String, ControlStrategy> strategyMapping = new HashMap<>();
+		for (String option : new String[] {"a", "b", "c", "d", "e", "f", "g"}) {
+			strategyMapping.put(option, Input.getControlStrategyOption(option));
+		}
+		return strategyMapping;
+	}
+	
+	static public ControlStrategy getControlStrategyOption(String option) {
+		/**
+		 * @param option  the user's choice of control strategy ("a", "b", ...)
+		 * @return the chosen control strategy, or null if the option isn't valid.
+		 */
+		switch (option) {
+			case "a": return new AStar();
+			case "b": return new IDAStar();
+			case "c": return new BidirectionalSearch();
+			case "d": return new TableLookup(DistanceTable.getDefaultDirectory());
+			case "e": return new ParallelAStar();
+			case "f": return new WeightedAStar();
+			case "g": return new AnytimeAStar();
+			default: return null;
+		}
 	}
 	
-	static private State readState() {
+	static private State readState(int width) {
 		/**
 		 * Reads a single state from the console.
 		 * 
-		 * The state must have a all numbers 1-8 and a hyphen, but no other characters.
+		 * The state must have every tile and a hyphen, but no other characters. The tiles are
+		 * 1-8 for the 8-puzzle, and 1-9 and A-F for the 15-puzzle. If no width is given, the
+		 * size of the board is decided by the number of characters entered: a line ending
+		 * after a complete 8-puzzle finishes the state, otherwise 16 characters are read.
 		 * Error checking is performed to make sure that the puzzle contains all the correct
 		 * information. If something was not entered right, the user will be asked to start over.
 		 * 
 		 * NOTE: all whitespace is ignored.
 		 * 
+		 * @param width  the width of the board, or 0 to accept either size.
 		 * @return the state that was read from the user.
 		 */
-		HashSet<Character> validNums = new HashSet<>(Arrays.asList('1', '2', '3', '4', '5', '6', '7', '8'));
+		int cells = width == 0 ? State.MAX_WIDTH * State.MAX_WIDTH : width * width;
+		HashSet<Character> validNums = new HashSet<>();
+		for (int tile=1; tile<cells; tile++) {
+			validNums.add(State.toChar(tile, State.MAX_WIDTH));
+		}
 		
-		char[] b = new char[9];	// create empty flattened board.
-		int foundNums = 0; // not to exceed 8
+		StringBuilder b = new StringBuilder(cells);	// create empty flattened board.
 		int foundDashes = 0; // not to exceed 1
-		boolean done = false;
 		
-		while (!done) {
+		while (true) {
 			String line = userInput.nextLine();
 			
 			for (int i=0; i<line.length(); i++) {
 				char cur = line.charAt(i);
 				
 				if (validNums.contains(cur)) {
-					foundNums += 1;
 					validNums.remove(cur);
 				}
 				else if (cur == '-' && foundDashes == 0) {
@@ -162,37 +352,37 @@ public class Input {
 				else {
 					Output.printIllegalChar(cur);
 					Output.printStartOverState();
-					return readState();
+					return readState(width);
 				}
 				
-				b[foundNums + foundDashes - 1] = cur;
+				b.append(cur);
 				
-				if (foundNums == 8 && foundDashes == 1) {
-					done = true;
-					break;
+				if (b.length() == cells) {
+					return Input.parseState(b.toString());
 				}
 			}
+			
+			// an 8-puzzle is complete once it has 1-8 and a hyphen
+			if (width == 0 && b.length() == State.CELLS && foundDashes == 1 && b.toString().matches("[1-8-]*")) {
+				return Input.parseState(b.toString());
+			}
 		}
-		
-		// convert the board to be 3x3
-		char[][] board = {{b[0], b[1], b[2]}, {b[3], b[4], b[5]}, {b[6], b[7], b[8]}};
-		return new State(board);
 	}
 	
-	static private String readHeuristicOption(HashMap<String, Heuristic> heuristicMapping) {
+	static private String readHeuristicOption(HashMap<String, String> heuristicSummaries) {
 		/**
 		 * Reads the heuristic option. If an invalid option is chosen, the user will be prompted again.
 		 * 
-		 * @param heuristicMapping  maps the user options to heuristics ("a" -> MisplacedTiles, etc.)
+		 * @param heuristicSummaries  maps the user options to summaries of the heuristics
 		 * @return the option of the heuristic chosen (a, b, c, etc.)
 		 */
 		String read = "";
 		
-		while (!heuristicMapping.containsKey(read)) {
-			Output.printQueryForHeuristic(heuristicMapping);
+		while (!heuristicSummaries.containsKey(read)) {
+			Output.printQueryForHeuristic(heuristicSummaries);
 			read = userInput.nextLine().trim();
 			
-			if (!heuristicMapping.containsKey(read)) {
+			if (!heuristicSummaries.containsKey(read)) {
 				Output.printIllegalHeuristicOption(read);
 			}
 		}
@@ -200,4 +390,25 @@ public class Input {
 		return read;
 	}
 	
+	static private String readControlStrategyOption(HashMap<String, ControlStrategy> strategyMapping) {
+		/**
+		 * Reads the control strategy option. If an invalid option is chosen, the user will be prompted again.
+		 * 
+		 * @param strategyMapping  maps the user options to control strategies ("a" -> AStar, etc.)
+		 * @return the option of the control strategy chosen (a, b, c, etc.)
+		 */
+		String read = "";
+		
+		while (!strategyMapping.containsKey(read)) {
+			Output.printQueryForControlStrategy(strategyMapping);
+			read = userInput.nextLine().trim();
+			
+			if (!strategyMapping.containsKey(read)) {
+				Output.printIllegalControlStrategyOption(read);
+			}
+		}
+		
+		return read;
+	}
+
 }
@@ -2,10 +2,12 @@ package io;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Locale;
 import java.util.Map;
 
+import control_strategies.ControlStrategy;
+import control_strategies.SearchResult;
 import database.Path;
-import database.State;
 import operators.Operator;
 import heuristics.Heuristic;
 
@@ -25,19 +27,34 @@ public class Output {
 		System.out.println("Enter the goal state");
 	}
 	
-	public static void printQueryForHeuristic(Map<String, Heuristic> heuristicMapping) {
+	public static void printQueryForHeuristic(Map<String, String> heuristicSummaries) {
 		/**
 		 * Ask the user to chose the heuristic to use.
 		 * 
-		 * @param heuristicMapping  maps the user options to heuristics ("a" -> MisplacedTiles, etc.)
+		 * @param heuristicSummaries  maps the user options to summaries of the heuristics ("a" -> "Number of...", etc.)
 		 */
 		System.out.println("Select the heuristic");
 		
-		ArrayList<String> keys = new ArrayList<>(heuristicMapping.keySet().size());
-		keys.addAll(heuristicMapping.keySet());
+		ArrayList<String> keys = new ArrayList<>(heuristicSummaries.keySet().size());
+		keys.addAll(heuristicSummaries.keySet());
 		Collections.sort(keys);
 		for (String key : keys) {
-			System.out.printf("%3s) %s\n", key, heuristicMapping.get(key).getSummary());
+			System.out.printf("%3s) %s\n", key, heuristicSummaries.get(key));
+		}
+	}
+	
+	public static void printQueryForControlStrategy(Map<String, ControlStrategy> strategyMapping) {
+		/**
+		 * Ask the user to chose the control strategy to use.
+		 * 
+		 * @param strategyMapping  maps the user options to control strategies ("a" -> AStar, etc.)
+		 */
+		System.out.println("Select the control strategy");
+		
+		ArrayList<String> keys = new ArrayList<>(strategyMapping.keySet());
+		Collections.sort(keys);
+		for (String key : keys) {
+			System.out.printf("%3s) %s\n", key, strategyMapping.get(key).getName());
 		}
 	}
 	
@@ -48,7 +65,7 @@ public class Output {
 		 * @param illegalChar  the character that was detected to be illegal.
 		 */
 		System.out.printf("Illegal Character '%c'\n", illegalChar);
-		System.out.println("The character was not a digit in the range 1-8, not a dash, or was a duplicate character.\n");
+		System.out.println("The character was not a tile of the puzzle (1-8, or 1-9 and A-F for the 15-puzzle), not a dash, or was a duplicate character.\n");
 	}
 	
 	public static void printStartOverState() {
@@ -67,29 +84,41 @@ public class Output {
 		System.out.printf("'%s' is not a valid heuristic option.\n", option);
 	}
 	
-	public static void printDone(Path path) {
+	public static void printIllegalControlStrategyOption(String option) {
+		/**
+		 * Tell the user that the selected control strategy was not a valid option.
+		 * 
+		 * @param option  the option of the control strategy to use (a, b, etc.)
+		 */
+		System.out.printf("'%s' is not a valid control strategy option.\n", option);
+	}
+	
+	public static void printDone(SearchResult result, ControlStrategy controlStrategy) {
 		/**
 		 * Tell the user that the program is done running. The following cases can happen.
 		 * 
-		 * - If the path is null, the puzzle was not solved.
-		 * - If the path is not null, print out the moves in the path and tell how many states were explored.
+		 * - If the search found no path, the puzzle was not solved.
+		 * - Otherwise, print out the moves in the path and the statistics of the search.
 		 * 
-		 * @param path  the optimal path to solve the puzzle (null if un-solvable)
+		 * @param result           the result of the search
+		 * @param controlStrategy  the control strategy that searched for the path
 		 */
-		if (path == null) {
+		if (!result.isSolved()) {
 			Output.printFailure();
 		}
 		else {
-			Output.printSuccess(path);
+			Output.printSuccess(result.getPath(), controlStrategy, result);
 		}
 		System.out.println();
 	}
 	
-	private static void printSuccess(Path optimalPath) {
+	private static void printSuccess(Path optimalPath, ControlStrategy controlStrategy, SearchResult result) {
 		/**
 		 * Tell the user all the moves of the solvable-puzzle as well as the number of states explored.
 		 * 
-		 * @param optimalPath  The path that solves the puzzle in the fewest number of steps.
+		 * @param optimalPath      The path that solves the puzzle in the fewest number of steps.
+		 * @param controlStrategy  The control strategy that found the path.
+		 * @param result           The result of the search.
 		 */
 		System.out.println("Solution:\n");
 		
@@ -99,7 +128,70 @@ public class Output {
 		System.out.println();
 		
 		System.out.printf("Given the selected heuristic, the solution required %d moves.\n", optimalPath.getOperators().size());
-		System.out.printf("The A* explored %d number of nodes to find this solution.", State.database.size());
+		if (result.getBound() > 1) {
+			System.out.printf("It is at most %.3f times longer than the shortest solution.\n", result.getBound());
+		}
+		System.out.printf("The %s explored %d number of nodes to find this solution.\n", controlStrategy.getName(), result.getNodesExplored());
+		System.out.printf("(%d expanded, %d generated, %d duplicates pruned, %d peak open, %d heuristic evaluations, %.3f ms)",
+				result.getNodesExpanded(), result.getNodesGenerated(), result.getDuplicatesPruned(),
+				result.getPeakOpen(), result.getHeuristicEvaluations(), result.getWallNanos() / 1e6);
+	}
+	
+	public static String formatResult(long index, SearchResult result) {
+		/**
+		 * Formats the result of one puzzle in batch mode as a single line:
+		 * 
+		 *     INDEX MOVES SOLUTION EXPLORED [BOUND]    (e.g. "3 4 UULD 12" or "4 6 LLURDR 20 1.500")
+		 *     INDEX unsolvable
+		 *     INDEX OUTCOME MOVES PARTIAL EXPLORED     (e.g. "5 deadline_exceeded 3 LLU 90210")
+		 * 
+		 * where SOLUTION has one letter per move of the blank and EXPLORED is the number of
+		 * nodes the search generated (distinct states, if its context counted them). BOUND is only given when the
+		 * solution may not be the shortest one: it may be up to BOUND times longer (see
+		 * SearchResult.getBound). The last form is for searches stopped by their budget, with
+		 * the outcome in lower case and the partial path that got closest to the goal.
+		 * 
+		 * @param index   the puzzle's position in the input (starting at 0)
+		 * @param result  the result of the search
+		 * @return the formatted line.
+		 */
+		if (result.getOutcome().isStopped()) {
+			Path partial = result.getPartialPath();
+			return index + " " + result.getOutcome().toString().toLowerCase() + " " + (partial == null ? 0 : partial.length())
+					+ " " + Output.formatMoves(partial) + " " + result.getNodesExplored();
+		}
+		if (!result.isSolved()) {
+			return index + " unsolvable";
+		}
+		
+		Path path = result.getPath();
+		String line = index + " " + path.length() + " " + Output.formatMoves(path) + " " + result.getNodesExplored();
+		return result.getBound() > 1 ? line + String.format(Locale.ROOT, " %.3f", result.getBound()) : line;
+	}
+	
+	private static String formatMoves(Path path) {
+		/**
+		 * @return one letter per move of the blank, or "-" if there are none.
+		 */
+		if (path == null || path.length() == 0) {
+			return "-";
+		}
+		StringBuilder moves = new StringBuilder(path.length());
+		for (Operator o : path.getOperators()) {
+			moves.append(o.toString().charAt(0));
+		}
+		return moves.toString();
+	}
+	
+	public static String formatError(long index, String message) {
+		/**
+		 * Formats a puzzle that couldn't be read or solved in batch mode as a single line: INDEX error MESSAGE
+		 * 
+		 * @param index    the puzzle's position in the input (starting at 0)
+		 * @param message  what was wrong with the puzzle or its search
+		 * @return the formatted line.
+		 */
+		return index + " error " + message;
 	}
 	
 	public static void printFailure() {
@@ -121,7 +213,7 @@ public class Output {
 		System.out.println("DEBUG: Paths in queue");
 		System.out.println("====================================");
 		for (Path p : paths) {
-			System.out.printf("HEUR:%6.3f  EST:%6.3f %s\n", heuristic.eval(p.terminalState()), p.estimate(heuristic), p.toString());
+			System.out.printf("HEUR:%6d  EST:%6d %s\n", heuristic.eval(p.terminalState()), p.estimate(heuristic), p.toString());
 		}
 		System.out.println();
 	}
@@ -5,4 +5,16 @@ public enum Operator {
 	 * All directions that the blank can be moved.
 	 */
     UP, DOWN, RIGHT, LEFT; 
-}
\ No newline at end of file
+	
+	public Operator inverse() {
+		/**
+		 * @return the operator that undoes this one.
+		 */
+		switch (this) {
+		case UP:    return DOWN;
+		case DOWN:  return UP;
+		case RIGHT: return LEFT;
+		default:    return RIGHT;
+		}
+	}
+}